@@ -0,0 +1,117 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+#include <math.h>
+#include <jni.h>
+#include <vips/vips.h>
+
+#include "ImageMetrics.h"
+#include "VipsException.h"
+#include "JniFieldsIDs.h"
+
+#define SSIM_SIGMA 1.5
+
+static int
+check_same_dimension(VipsImage *a, VipsImage *b)
+{
+    if (a->Xsize != b->Xsize || a->Ysize != b->Ysize || a->Bands != b->Bands)
+    {
+        vips_error("ImageMetrics", "images must have the same dimension and bands");
+        return -1;
+    }
+    return 0;
+}
+
+JNIEXPORT jdouble JNICALL
+Java_com_criteo_vips_ImageMetrics_psnrNative(JNIEnv *env, __attribute__((unused)) jclass cls, jobject a_obj, jobject b_obj)
+{
+    VipsImage *a = (VipsImage *) (*env)->GetLongField(env, a_obj, handle_fid);
+    VipsImage *b = (VipsImage *) (*env)->GetLongField(env, b_obj, handle_fid);
+    VipsImage *context = vips_image_new();
+    VipsImage **t = (VipsImage **) vips_object_local_array(VIPS_OBJECT(context), 4);
+    double peak = vips_interpretation_max_alpha(vips_image_guess_interpretation(a));
+    double mse;
+
+    if (check_same_dimension(a, b) ||
+        vips_cast(a, &t[0], VIPS_FORMAT_FLOAT, NULL) ||
+        vips_cast(b, &t[1], VIPS_FORMAT_FLOAT, NULL) ||
+        vips_subtract(t[0], t[1], &t[2], NULL) ||
+        vips_multiply(t[2], t[2], &t[3], NULL) ||
+        vips_avg(t[3], &mse, NULL))
+    {
+        g_object_unref(context);
+        throwVipsException(env, "Unable to compute PSNR");
+        return 0;
+    }
+    g_object_unref(context);
+    if (mse == 0)
+        return INFINITY;
+    return 10 * log10(peak * peak / mse);
+}
+
+JNIEXPORT jdouble JNICALL
+Java_com_criteo_vips_ImageMetrics_ssimNative(JNIEnv *env, __attribute__((unused)) jclass cls, jobject a_obj, jobject b_obj)
+{
+    VipsImage *a = (VipsImage *) (*env)->GetLongField(env, a_obj, handle_fid);
+    VipsImage *b = (VipsImage *) (*env)->GetLongField(env, b_obj, handle_fid);
+    VipsImage *context = vips_image_new();
+    VipsImage **t = (VipsImage **) vips_object_local_array(VIPS_OBJECT(context), 24);
+    double peak = vips_interpretation_max_alpha(vips_image_guess_interpretation(a));
+    double c1 = (0.01 * peak) * (0.01 * peak);
+    double c2 = (0.03 * peak) * (0.03 * peak);
+    double ssim;
+
+    // ssim = (2 mu_a mu_b + c1) (2 sigma_ab + c2) / ((mu_a^2 + mu_b^2 + c1) (sigma_a^2 + sigma_b^2 + c2))
+    // where means and variances are gaussian weighted around each pixel
+    if (check_same_dimension(a, b) ||
+        vips_cast(a, &t[0], VIPS_FORMAT_FLOAT, NULL) ||
+        vips_cast(b, &t[1], VIPS_FORMAT_FLOAT, NULL) ||
+        // mu_a, mu_b
+        vips_gaussblur(t[0], &t[2], SSIM_SIGMA, "precision", VIPS_PRECISION_FLOAT, NULL) ||
+        vips_gaussblur(t[1], &t[3], SSIM_SIGMA, "precision", VIPS_PRECISION_FLOAT, NULL) ||
+        // E[a^2], E[b^2], E[ab]
+        vips_multiply(t[0], t[0], &t[4], NULL) ||
+        vips_gaussblur(t[4], &t[5], SSIM_SIGMA, "precision", VIPS_PRECISION_FLOAT, NULL) ||
+        vips_multiply(t[1], t[1], &t[6], NULL) ||
+        vips_gaussblur(t[6], &t[7], SSIM_SIGMA, "precision", VIPS_PRECISION_FLOAT, NULL) ||
+        vips_multiply(t[0], t[1], &t[8], NULL) ||
+        vips_gaussblur(t[8], &t[9], SSIM_SIGMA, "precision", VIPS_PRECISION_FLOAT, NULL) ||
+        // mu_a^2, mu_b^2, mu_a mu_b
+        vips_multiply(t[2], t[2], &t[10], NULL) ||
+        vips_multiply(t[3], t[3], &t[11], NULL) ||
+        vips_multiply(t[2], t[3], &t[12], NULL) ||
+        // numerator
+        vips_linear1(t[12], &t[13], 2, c1, NULL) ||
+        vips_subtract(t[9], t[12], &t[14], NULL) ||
+        vips_linear1(t[14], &t[15], 2, c2, NULL) ||
+        vips_multiply(t[13], t[15], &t[16], NULL) ||
+        // denominator
+        vips_add(t[10], t[11], &t[17], NULL) ||
+        vips_linear1(t[17], &t[18], 1, c1, NULL) ||
+        vips_add(t[5], t[7], &t[19], NULL) ||
+        vips_subtract(t[19], t[17], &t[20], NULL) ||
+        vips_linear1(t[20], &t[21], 1, c2, NULL) ||
+        vips_multiply(t[18], t[21], &t[22], NULL) ||
+        vips_divide(t[16], t[22], &t[23], NULL) ||
+        vips_avg(t[23], &ssim, NULL))
+    {
+        g_object_unref(context);
+        throwVipsException(env, "Unable to compute SSIM");
+        return 0;
+    }
+    g_object_unref(context);
+    return ssim;
+}
@@ -0,0 +1,29 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class com_criteo_vips_ImageMetrics */
+
+#ifndef _Included_com_criteo_vips_ImageMetrics
+#define _Included_com_criteo_vips_ImageMetrics
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     com_criteo_vips_ImageMetrics
+ * Method:    psnrNative
+ * Signature: (Lcom/criteo/vips/VipsImage;Lcom/criteo/vips/VipsImage;)D
+ */
+JNIEXPORT jdouble JNICALL Java_com_criteo_vips_ImageMetrics_psnrNative
+  (JNIEnv *, jclass, jobject, jobject);
+
+/*
+ * Class:     com_criteo_vips_ImageMetrics
+ * Method:    ssimNative
+ * Signature: (Lcom/criteo/vips/VipsImage;Lcom/criteo/vips/VipsImage;)D
+ */
+JNIEXPORT jdouble JNICALL Java_com_criteo_vips_ImageMetrics_ssimNative
+  (JNIEnv *, jclass, jobject, jobject);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
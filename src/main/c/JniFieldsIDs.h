@@ -17,3 +17,4 @@
 extern jfieldID field_Max1Result_out;
 extern jfieldID field_Max1Result_x;
 extern jfieldID field_Max1Result_y;
+extern jfieldID handle_fid;
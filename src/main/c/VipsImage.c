@@ -25,6 +25,14 @@
 #include "JniFieldsIDs.h"
 
 #define MAX_CHANNEL_SIZE 4
+// Palette colours are counted on a thumbnail, with 16 levels per channel
+#define PALETTE_THUMBNAIL_SIZE 64
+#define PALETTE_LEVEL_BITS 4
+#define PALETTE_LEVELS (1 << PALETTE_LEVEL_BITS)
+#define PALETTE_BINS (PALETTE_LEVELS * PALETTE_LEVELS * PALETTE_LEVELS)
+// Content is analyzed on a thumbnail, a pixel is on an edge above this luminance gradient
+#define ANALYSIS_THUMBNAIL_SIZE 128
+#define ANALYSIS_EDGE_THRESHOLD 48
 
 jfieldID handle_fid = NULL;
 jfieldID buffer_fid = NULL;
@@ -213,14 +221,136 @@ Java_com_criteo_vips_VipsImage_colourspaceNative__II(JNIEnv *env, jobject obj, i
     g_object_unref(im);
 }
 
+typedef int (*PageOperation)(VipsImage *in, VipsImage **out, void *a);
+
+/**
+ * Apply an operation to every page of a multi-page image loaded with n=-1,
+ * whose frames are stacked vertically page-height rows apart, then stack the
+ * results again. Single page images go straight to the operation.
+ */
+static int
+map_pages(VipsImage *in, VipsImage **out, PageOperation operation, void *a)
+{
+    int page_height = vips_image_get_page_height(in);
+    int n_pages = in->Ysize / page_height;
+    VipsImage *context = NULL;
+    VipsImage **t = NULL;
+    int i;
+
+    if (n_pages <= 1)
+    {
+        VipsImage *single = NULL;
+
+        if (operation(in, &single, a))
+            return -1;
+        if (!vips_image_get_typeof(single, VIPS_META_PAGE_HEIGHT))
+        {
+            *out = single;
+            return 0;
+        }
+        // Keep a single frame, eg. padded to a multiple of its height, from becoming an animation
+        if (vips_copy(single, out, NULL))
+        {
+            g_object_unref(single);
+            return -1;
+        }
+        g_object_unref(single);
+        vips_image_set_int(*out, VIPS_META_PAGE_HEIGHT, (*out)->Ysize);
+        return 0;
+    }
+    context = vips_image_new();
+    t = (VipsImage **) vips_object_local_array(VIPS_OBJECT(context), 2 * n_pages + 1);
+    for (i = 0; i < n_pages; ++i)
+    {
+        if (vips_crop(in, &t[n_pages + i], 0, i * page_height, in->Xsize, page_height, NULL) ||
+            operation(t[n_pages + i], &t[i], a))
+        {
+            g_object_unref(context);
+            return -1;
+        }
+    }
+    if (vips_arrayjoin(t, &t[2 * n_pages], n_pages, "across", 1, NULL) ||
+        vips_copy(t[2 * n_pages], out, NULL))
+    {
+        g_object_unref(context);
+        return -1;
+    }
+    vips_image_set_int(*out, VIPS_META_PAGE_HEIGHT, t[0]->Ysize);
+    g_object_unref(context);
+    return 0;
+}
+
+typedef struct
+{
+    int width;
+    int height;
+    VipsSize size;
+    VipsInteresting crop;
+} ThumbnailArgs;
+
+static int
+thumbnail_page(VipsImage *in, VipsImage **out, void *a)
+{
+    ThumbnailArgs *args = (ThumbnailArgs *) a;
+
+    return vips_thumbnail_image(in, out, args->width, "height", args->height, "size", args->size, "crop", args->crop, NULL);
+}
+
+typedef struct
+{
+    double hscale;
+    double vscale;
+    VipsKernel kernel;
+} ResizeArgs;
+
+static int
+resize_page(VipsImage *in, VipsImage **out, void *a)
+{
+    ResizeArgs *args = (ResizeArgs *) a;
+
+    return vips_resize(in, out, args->hscale, "vscale", args->vscale, "kernel", args->kernel, NULL);
+}
+
+typedef struct
+{
+    int width;
+    int height;
+    VipsCompassDirection direction;
+    VipsArrayDouble *background;
+} PadArgs;
+
+static int
+pad_page(VipsImage *in, VipsImage **out, void *a)
+{
+    PadArgs *args = (PadArgs *) a;
+
+    return vips_gravity(in, out, args->direction, args->width, args->height, "extend", VIPS_EXTEND_BACKGROUND, "background", args->background, NULL);
+}
+
+typedef struct
+{
+    int left;
+    int top;
+    int width;
+    int height;
+} CropArgs;
+
+static int
+crop_page(VipsImage *in, VipsImage **out, void *a)
+{
+    CropArgs *args = (CropArgs *) a;
+
+    return vips_crop(in, out, args->left, args->top, args->width, args->height, NULL);
+}
+
 JNIEXPORT void JNICALL
 Java_com_criteo_vips_VipsImage_thumbnailImageNative(JNIEnv *env, jobject obj, jint width, jint height, jboolean scale)
 {
     VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
     VipsImage *out = NULL;
-    VipsSize vipsSize = scale ? VIPS_SIZE_FORCE : VIPS_SIZE_BOTH;
+    ThumbnailArgs args = { width, height, scale ? VIPS_SIZE_FORCE : VIPS_SIZE_BOTH, VIPS_INTERESTING_NONE };
 
-    if (vips_thumbnail_image(im, &out, width, "height", height, "size", vipsSize, NULL))
+    if (map_pages(im, &out, thumbnail_page, &args))
     {
         throwVipsException(env, "Unable to make thumbnail image");
         return;
@@ -244,13 +374,173 @@ Java_com_criteo_vips_VipsImage_thumbnailNative(JNIEnv *env, jclass cls, jstring
     return (*env)->NewObject(env, cls, ctor_mid, (jlong) out);
 }
 
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_thumbnailImageCropNative(JNIEnv *env, jobject obj, jint width, jint height, jint crop)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *out = NULL;
+    ThumbnailArgs args = { width, height, VIPS_SIZE_BOTH, crop };
+
+    if (map_pages(im, &out, thumbnail_page, &args))
+    {
+        throwVipsException(env, "Unable to make cropped thumbnail image");
+        return;
+    }
+    (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
+    g_object_unref(im);
+}
+
+JNIEXPORT jobject JNICALL
+Java_com_criteo_vips_VipsImage_thumbnailCropNative(JNIEnv *env, jclass cls, jstring filename, jint width, jint height, jint crop)
+{
+    VipsImage *out = NULL;
+    const char *name = (*env)->GetStringUTFChars(env, filename, NULL);
+
+    if (vips_thumbnail(name, &out, width, "height", height, "crop", crop, NULL))
+    {
+        (*env)->ReleaseStringUTFChars(env, filename, name);
+        throwVipsException(env, "Unable to make cropped thumbnail");
+        return NULL;
+    }
+    (*env)->ReleaseStringUTFChars(env, filename, name);
+    return (*env)->NewObject(env, cls, ctor_mid, (jlong) out);
+}
+
+/**
+ * Decode the EXIF thumbnail libvips attaches to a JPEG header, tagged with the
+ * orientation of the main image so vips_thumbnail_image() rotates it the same
+ * way. The returned image references the header blob and must not outlive it.
+ */
+static VipsImage *
+exif_thumbnail(VipsImage *header)
+{
+    const void *data = NULL;
+    size_t length = 0;
+    VipsImage *thumb = NULL;
+    VipsImage *out = NULL;
+
+    if (!vips_image_get_typeof(header, "jpeg-thumbnail-data") ||
+        vips_image_get_blob(header, "jpeg-thumbnail-data", &data, &length) ||
+        (thumb = vips_image_new_from_buffer(data, length, "", NULL)) == NULL)
+        return NULL;
+    if (vips_copy(thumb, &out, NULL))
+    {
+        g_object_unref(thumb);
+        return NULL;
+    }
+    g_object_unref(thumb);
+    vips_image_set_int(out, VIPS_META_ORIENTATION, vips_image_get_orientation(header));
+    return out;
+}
+
+/**
+ * Fit an embedded thumbnail into the preview box, only if it has enough pixels
+ * for it. The result is copied to memory so it no longer depends on the source.
+ * Return 0 when the embedded thumbnail has been used.
+ */
+static int
+preview_from_embedded(VipsImage *embedded, int max_size, VipsImage **out)
+{
+    VipsImage *t = NULL;
+
+    if (embedded == NULL || VIPS_MAX(embedded->Xsize, embedded->Ysize) < max_size)
+        return -1;
+    if (vips_thumbnail_image(embedded, &t, max_size, "height", max_size, NULL))
+        return -1;
+    *out = vips_image_copy_memory(t);
+    g_object_unref(t);
+    return *out == NULL ? -1 : 0;
+}
+
+JNIEXPORT jobject JNICALL
+Java_com_criteo_vips_VipsImage_previewNative__Ljava_lang_String_2I(JNIEnv *env, jclass cls, jstring filename, jint maxSize)
+{
+    const char *name = (*env)->GetStringUTFChars(env, filename, NULL);
+    const char *loader = vips_foreign_find_load(name);
+    VipsImage *header = NULL;
+    VipsImage *embedded = NULL;
+    VipsImage *out = NULL;
+
+    if (loader == NULL)
+    {
+        (*env)->ReleaseStringUTFChars(env, filename, name);
+        throwVipsException(env, "Unable to find a loader");
+        return NULL;
+    }
+    if (vips_isprefix("VipsForeignLoadHeif", loader))
+        embedded = vips_image_new_from_file(name, "thumbnail", TRUE, NULL);
+    else if ((header = vips_image_new_from_file(name, NULL)) != NULL)
+        embedded = exif_thumbnail(header);
+    if (preview_from_embedded(embedded, maxSize, &out))
+    {
+        vips_error_clear();
+        if (vips_thumbnail(name, &out, maxSize, "height", maxSize, NULL))
+            out = NULL;
+    }
+    if (embedded != NULL)
+        g_object_unref(embedded);
+    if (header != NULL)
+        g_object_unref(header);
+    (*env)->ReleaseStringUTFChars(env, filename, name);
+    if (out == NULL)
+    {
+        throwVipsException(env, "Unable to make preview");
+        return NULL;
+    }
+    return (*env)->NewObject(env, cls, ctor_mid, (jlong) out);
+}
+
+JNIEXPORT jobject JNICALL
+Java_com_criteo_vips_VipsImage_previewNative___3BII(JNIEnv *env, jclass cls, jbyteArray buffer, jint length, jint maxSize)
+{
+    jbyte *buf = (*env)->GetByteArrayElements(env, buffer, NULL);
+    const char *loader = vips_foreign_find_load_buffer(buf, length);
+    VipsImage *header = NULL;
+    VipsImage *embedded = NULL;
+    VipsImage *t = NULL;
+    VipsImage *out = NULL;
+
+    if (loader == NULL)
+    {
+        (*env)->ReleaseByteArrayElements(env, buffer, buf, JNI_ABORT);
+        throwVipsException(env, "Unable to find a loader");
+        return NULL;
+    }
+    if (vips_isprefix("VipsForeignLoadHeif", loader))
+        embedded = vips_image_new_from_buffer(buf, length, "", "thumbnail", TRUE, NULL);
+    else if ((header = vips_image_new_from_buffer(buf, length, "", NULL)) != NULL)
+        embedded = exif_thumbnail(header);
+    if (preview_from_embedded(embedded, maxSize, &out))
+    {
+        vips_error_clear();
+        // The Java array is released below, so detach the result from it
+        if (!vips_thumbnail_buffer(buf, length, &t, maxSize, "height", maxSize, NULL))
+        {
+            out = vips_image_copy_memory(t);
+            g_object_unref(t);
+        }
+    }
+    if (embedded != NULL)
+        g_object_unref(embedded);
+    if (header != NULL)
+        g_object_unref(header);
+    (*env)->ReleaseByteArrayElements(env, buffer, buf, JNI_ABORT);
+    if (out == NULL)
+    {
+        throwVipsException(env, "Unable to make preview");
+        return NULL;
+    }
+    return (*env)->NewObject(env, cls, ctor_mid, (jlong) out);
+}
+
 JNIEXPORT void JNICALL
 Java_com_criteo_vips_VipsImage_resizeNative(JNIEnv *env, jobject obj, jdouble hscale, jdouble vscale, jint kernel)
 {
     VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
     VipsImage *out = NULL;
+    ResizeArgs args = { hscale, vscale, kernel };
 
-    if (vips_resize(im, &out, hscale, "vscale", vscale, "kernel", kernel, NULL))
+    if (map_pages(im, &out, resize_page, &args))
     {
         throwVipsException(env, "Unable to resize image");
         return;
@@ -266,8 +556,7 @@ Java_com_criteo_vips_VipsImage_padNative(JNIEnv *env, jobject obj, jint width, j
     VipsImage *out = NULL;
     jint length = (*env)->GetArrayLength(env, background);
     jdouble background_array[MAX_CHANNEL_SIZE] = { 0 };
-    VipsArrayDouble *bg_pixel = NULL;
-    VipsCompassDirection direction = gravity;
+    PadArgs args = { width, height, gravity, NULL };
 
     if (im->Bands > length && length != 1)
     {
@@ -276,14 +565,15 @@ Java_com_criteo_vips_VipsImage_padNative(JNIEnv *env, jobject obj, jint width, j
     }
     length = im->Bands;
     (*env)->GetDoubleArrayRegion(env, background, 0, length, background_array);
-    bg_pixel = vips_array_double_new(background_array, length);
-    if (vips_gravity(im, &out, direction, width, height, "extend", VIPS_EXTEND_BACKGROUND, "background", bg_pixel, NULL))
+    args.background = vips_array_double_new(background_array, length);
+    if (map_pages(im, &out, pad_page, &args))
     {
+        vips_area_unref((VipsArea *) args.background);
         throwVipsException(env, "Unable to pad image");
         return;
     }
     (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
-    vips_area_unref((VipsArea *) bg_pixel);
+    vips_area_unref((VipsArea *) args.background);
     g_object_unref(im);
 }
 
@@ -291,11 +581,10 @@ JNIEXPORT void JNICALL
 Java_com_criteo_vips_VipsImage_cropNative(JNIEnv *env, jobject obj, jint left, jint top, jint width, jint height)
 {
     VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
-    int w = vips_image_get_width(im);
-    int h = vips_image_get_height(im);
     VipsImage *out = NULL;
+    CropArgs args = { left, top, width, height };
 
-    if (vips_crop(im, &out, left, top, width, height, NULL))
+    if (map_pages(im, &out, crop_page, &args))
     {
         throwVipsException(env, "Unable to crop image");
         return;
@@ -304,6 +593,21 @@ Java_com_criteo_vips_VipsImage_cropNative(JNIEnv *env, jobject obj, jint left, j
     g_object_unref(im);
 }
 
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_smartcropNative(JNIEnv *env, jobject obj, jint width, jint height, jint interesting)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *out = NULL;
+
+    if (vips_smartcrop(im, &out, width, height, "interesting", interesting, NULL))
+    {
+        throwVipsException(env, "Unable to smartcrop image");
+        return;
+    }
+    (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
+    g_object_unref(im);
+}
+
 JNIEXPORT jintArray JNICALL
 Java_com_criteo_vips_VipsImage_findTrimNative(JNIEnv *env, jobject obj, jdouble threshold, jdoubleArray background)
 {
@@ -357,6 +661,48 @@ Java_com_criteo_vips_VipsImage_compose(JNIEnv *env, jobject obj, jobject sub)
     g_object_unref(im);
 }
 
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_compositeNative(JNIEnv *env, jobject obj, jobjectArray layers, jintArray modes, jintArray x, jintArray y, jboolean premultiplied)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *out = NULL;
+    jsize n = (*env)->GetArrayLength(env, layers);
+    VipsImage **in = g_new(VipsImage *, n + 1);
+    jint *modes_array = (*env)->GetIntArrayElements(env, modes, NULL);
+    jint *x_array = (*env)->GetIntArrayElements(env, x, NULL);
+    jint *y_array = (*env)->GetIntArrayElements(env, y, NULL);
+    VipsArrayInt *x_positions = vips_array_int_new(x_array, n);
+    VipsArrayInt *y_positions = vips_array_int_new(y_array, n);
+    int ret;
+    int i;
+
+    in[0] = im;
+    for (i = 0; i < n; ++i)
+    {
+        jobject layer = (*env)->GetObjectArrayElement(env, layers, i);
+        in[i + 1] = (VipsImage *) (*env)->GetLongField(env, layer, handle_fid);
+        (*env)->DeleteLocalRef(env, layer);
+    }
+    ret = vips_composite(in, &out, n + 1, (int *) modes_array,
+        "x", x_positions,
+        "y", y_positions,
+        "premultiplied", premultiplied,
+        NULL);
+    vips_area_unref((VipsArea *) x_positions);
+    vips_area_unref((VipsArea *) y_positions);
+    (*env)->ReleaseIntArrayElements(env, y, y_array, JNI_ABORT);
+    (*env)->ReleaseIntArrayElements(env, x, x_array, JNI_ABORT);
+    (*env)->ReleaseIntArrayElements(env, modes, modes_array, JNI_ABORT);
+    g_free(in);
+    if (ret)
+    {
+        throwVipsException(env, "Unable to composite images");
+        return;
+    }
+    (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
+    g_object_unref(im);
+}
+
 JNIEXPORT void JNICALL
 Java_com_criteo_vips_VipsImage_insert(JNIEnv *env, jobject obj, jobject sub, jint x, jint y)
 {
@@ -409,9 +755,9 @@ Java_com_criteo_vips_VipsImage_writeToArrayNative(JNIEnv *env, jobject obj, jstr
 
     if (strcmp(ext, ".avif") == 0) {
         if (quality < 0)
-            status = vips_heifsave_buffer(im, &buffer, &result_length, "Q", quality, "compression", VIPS_FOREIGN_HEIF_COMPRESSION_AV1, NULL);
+            status = vips_heifsave_buffer(im, &buffer, &result_length, "strip", strip, "compression", VIPS_FOREIGN_HEIF_COMPRESSION_AV1, NULL);
         else
-            status = vips_heifsave_buffer(im, &buffer, &result_length, "compression", VIPS_FOREIGN_HEIF_COMPRESSION_AV1, NULL);
+            status = vips_heifsave_buffer(im, &buffer, &result_length, "strip", strip, "Q", quality, "compression", VIPS_FOREIGN_HEIF_COMPRESSION_AV1, NULL);
     } else {
         if (quality < 0)
             status = vips_image_write_to_buffer(im, ext, &buffer, &result_length, "strip", strip, NULL);
@@ -431,6 +777,59 @@ Java_com_criteo_vips_VipsImage_writeToArrayNative(JNIEnv *env, jobject obj, jstr
     return ret;
 }
 
+JNIEXPORT jbyteArray JNICALL
+Java_com_criteo_vips_VipsImage_writeTIFFNative(JNIEnv *env, jobject obj, jstring name, jint compression, jint predictor, jint Q, jboolean tile, jint tile_width, jint tile_height, jboolean pyramid, jboolean subifd, jboolean bigtiff, jboolean strip)
+{
+    jbyteArray ret = NULL;
+    void *buffer = NULL;
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    size_t result_length = 0;
+    int status;
+
+    if (name != NULL)
+    {
+        const char *filename = (*env)->GetStringUTFChars(env, name, NULL);
+
+        status = vips_tiffsave(im, filename,
+                               "compression", compression,
+                               "predictor", predictor,
+                               "Q", Q,
+                               "tile", tile,
+                               "tile_width", tile_width,
+                               "tile_height", tile_height,
+                               "pyramid", pyramid,
+                               "subifd", subifd,
+                               "bigtiff", bigtiff,
+                               "strip", strip,
+                               NULL);
+        (*env)->ReleaseStringUTFChars(env, name, filename);
+    }
+    else
+        status = vips_tiffsave_buffer(im, &buffer, &result_length,
+                                      "compression", compression,
+                                      "predictor", predictor,
+                                      "Q", Q,
+                                      "tile", tile,
+                                      "tile_width", tile_width,
+                                      "tile_height", tile_height,
+                                      "pyramid", pyramid,
+                                      "subifd", subifd,
+                                      "bigtiff", bigtiff,
+                                      "strip", strip,
+                                      NULL);
+    if (status)
+    {
+        throwVipsException(env, "Unable to write TIFF image");
+        return NULL;
+    }
+    if (name != NULL)
+        return NULL;
+    ret = (*env)->NewByteArray(env, result_length);
+    (*env)->SetByteArrayRegion(env, ret, 0, result_length * sizeof (jbyte), buffer);
+    g_free(buffer);
+    return ret;
+}
+
 JNIEXPORT jbyteArray JNICALL
 Java_com_criteo_vips_VipsImage_writePNGToArrayNative(JNIEnv *env, jobject obj, jint compression, jboolean palette, jint colors, jboolean strip)
 {
@@ -455,6 +854,60 @@ Java_com_criteo_vips_VipsImage_writePNGToArrayNative(JNIEnv *env, jobject obj, j
     return ret;
 }
 
+/**
+ * Check whether the GIF saver of the loaded libvips has the given option,
+ * eg. interframe_maxerror only exists from libvips 8.13.
+ */
+static gboolean
+gifsave_has_option(const char *name)
+{
+    GType type = vips_type_find("VipsOperation", "gifsave_buffer");
+    GObjectClass *class = NULL;
+    gboolean found = FALSE;
+
+    if (type == 0)
+        return FALSE;
+    class = g_type_class_ref(type);
+    found = g_object_class_find_property(class, name) != NULL;
+    g_type_class_unref(class);
+    return found;
+}
+
+JNIEXPORT jbyteArray JNICALL
+Java_com_criteo_vips_VipsImage_writeGIFToArrayNative(JNIEnv *env, jobject obj, jdouble dither, jint effort, jint bitdepth, jdouble interframe_maxerror, jboolean strip)
+{
+    jbyteArray ret = NULL;
+    void *buffer = NULL;
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    size_t result_length = 0;
+    int status;
+
+    if (interframe_maxerror > 0 && gifsave_has_option("interframe_maxerror"))
+        status = vips_gifsave_buffer(im, &buffer, &result_length,
+                                     "dither", dither,
+                                     "effort", effort,
+                                     "bitdepth", bitdepth,
+                                     "interframe_maxerror", interframe_maxerror,
+                                     "strip", strip,
+                                     NULL);
+    else
+        status = vips_gifsave_buffer(im, &buffer, &result_length,
+                                     "dither", dither,
+                                     "effort", effort,
+                                     "bitdepth", bitdepth,
+                                     "strip", strip,
+                                     NULL);
+    if (status)
+    {
+        throwVipsException(env, "Unable to write GIF image buffer");
+        return NULL;
+    }
+    ret = (*env)->NewByteArray(env, result_length);
+    (*env)->SetByteArrayRegion(env, ret, 0, result_length * sizeof (jbyte), buffer);
+    g_free(buffer);
+    return ret;
+}
+
 JNIEXPORT jbyteArray JNICALL
 Java_com_criteo_vips_VipsImage_writeJPEGToArrayNative(JNIEnv *env, jobject obj, jint q, jboolean strip)
 {
@@ -476,7 +929,7 @@ Java_com_criteo_vips_VipsImage_writeJPEGToArrayNative(JNIEnv *env, jobject obj,
 }
 
 JNIEXPORT jbyteArray JNICALL
-Java_com_criteo_vips_VipsImage_writeAVIFToArrayNative(JNIEnv *env, jobject obj, jint q, jboolean lossless, jint speed)
+Java_com_criteo_vips_VipsImage_writeAVIFToArrayNative(JNIEnv *env, jobject obj, jint q, jboolean lossless, jint speed, jboolean strip)
 {
     jbyteArray ret;
     void *buffer = NULL;
@@ -488,6 +941,7 @@ Java_com_criteo_vips_VipsImage_writeAVIFToArrayNative(JNIEnv *env, jobject obj,
                             "lossless", lossless,
                             "compression", VIPS_FOREIGN_HEIF_COMPRESSION_AV1,
                             "speed", speed,
+                            "strip", strip,
                             NULL))
     {
         throwVipsException(env, "Unable to write AVIF image buffer");
@@ -535,6 +989,28 @@ Java_com_criteo_vips_VipsImage_writeToFile(JNIEnv *env, jobject obj, jstring nam
     (*env)->ReleaseStringUTFChars(env, name, filename);
 }
 
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_dzsaveNative(JNIEnv *env, jobject obj, jstring basename, jint layout, jint depth, jint container, jint tile_size, jint overlap, jstring suffix)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    const char *name = (*env)->GetStringUTFChars(env, basename, NULL);
+    const char *suffix_str = (*env)->GetStringUTFChars(env, suffix, NULL);
+
+    if (vips_dzsave(im, name,
+        "layout", layout,
+        "depth", depth,
+        "container", container,
+        "tile_size", tile_size,
+        "overlap", overlap,
+        "suffix", suffix_str,
+        NULL))
+    {
+        throwVipsException(env, "Unable to write tile pyramid");
+    }
+    (*env)->ReleaseStringUTFChars(env, suffix, suffix_str);
+    (*env)->ReleaseStringUTFChars(env, basename, name);
+}
+
 JNIEXPORT jint JNICALL
 Java_com_criteo_vips_VipsImage_getWidth(JNIEnv *env, jobject obj)
 {
@@ -604,6 +1080,239 @@ Java_com_criteo_vips_VipsImage_convertTosRGB(JNIEnv *env, jobject obj)
     g_object_unref(im);
 }
 
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_copyMemory(JNIEnv *env, jobject obj)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *out = NULL;
+
+    if ((out = vips_image_copy_memory(im)) == NULL)
+    {
+        throwVipsException(env, "Unable to copy image to memory");
+        return;
+    }
+    (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
+    g_object_unref(im);
+}
+
+/*
+ * Build out from im without its redundant bands, out is NULL if no band is redundant.
+ * Alpha minimum and RGB channel differences are found by a single vips_stats pass.
+ */
+static int
+optimize_bands(VipsImage *im, VipsImage **out)
+{
+    VipsImage *context = vips_image_new();
+    VipsImage **t = (VipsImage **) vips_object_local_array(VIPS_OBJECT(context), 13);
+    VipsInterpretation interpretation = vips_image_guess_interpretation(im);
+    gboolean has_alpha = vips_image_hasalpha(im);
+    int colour_bands = has_alpha ? im->Bands - 1 : im->Bands;
+    gboolean is_rgb = colour_bands == 3 &&
+        (interpretation == VIPS_INTERPRETATION_sRGB || interpretation == VIPS_INTERPRETATION_RGB16);
+    VipsImage *probes[2];
+    VipsImage *result;
+    int nb_probes = 0;
+    gboolean drop_alpha;
+    gboolean grey;
+
+    *out = NULL;
+    if (!has_alpha && !is_rgb)
+    {
+        g_object_unref(context);
+        return 0;
+    }
+    if (has_alpha)
+    {
+        if (vips_extract_band(im, &t[0], im->Bands - 1, NULL))
+        {
+            g_object_unref(context);
+            return -1;
+        }
+        probes[nb_probes++] = t[0];
+    }
+    if (is_rgb)
+    {
+        // |R - G| + |R - B| is zero everywhere if the image is grey
+        if (vips_extract_band(im, &t[1], 0, NULL) ||
+            vips_extract_band(im, &t[2], 1, NULL) ||
+            vips_extract_band(im, &t[3], 2, NULL) ||
+            vips_subtract(t[1], t[2], &t[4], NULL) ||
+            vips_abs(t[4], &t[5], NULL) ||
+            vips_subtract(t[1], t[3], &t[6], NULL) ||
+            vips_abs(t[6], &t[7], NULL) ||
+            vips_add(t[5], t[7], &t[8], NULL))
+        {
+            g_object_unref(context);
+            return -1;
+        }
+        probes[nb_probes++] = t[8];
+    }
+    // stats is a 10 x (bands + 1) matrix, with min in column 0 and max in column 1 of row band + 1
+    if (vips_bandjoin(probes, &t[9], nb_probes, NULL) ||
+        vips_stats(t[9], &t[10], NULL) ||
+        vips_image_wio_input(t[10]))
+    {
+        g_object_unref(context);
+        return -1;
+    }
+    drop_alpha = has_alpha && *VIPS_MATRIX(t[10], 0, 1) >= vips_interpretation_max_alpha(interpretation);
+    grey = is_rgb && *VIPS_MATRIX(t[10], 1, nb_probes) == 0;
+    if (!drop_alpha && !grey)
+    {
+        g_object_unref(context);
+        return 0;
+    }
+
+    result = im;
+    if (grey)
+    {
+        if (vips_copy(t[1], &t[11], "interpretation",
+                interpretation == VIPS_INTERPRETATION_RGB16 ? VIPS_INTERPRETATION_GREY16 : VIPS_INTERPRETATION_B_W, NULL))
+        {
+            g_object_unref(context);
+            return -1;
+        }
+        result = t[11];
+    }
+    else if (vips_extract_band(im, &t[11], 0, "n", colour_bands, NULL))
+    {
+        g_object_unref(context);
+        return -1;
+    }
+    else
+        result = t[11];
+    if (has_alpha && !drop_alpha)
+    {
+        if (vips_bandjoin2(result, t[0], &t[12], NULL))
+        {
+            g_object_unref(context);
+            return -1;
+        }
+        result = t[12];
+    }
+    g_object_ref(result);
+    *out = result;
+    g_object_unref(context);
+    return 0;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_com_criteo_vips_VipsImage_optimizeBands(JNIEnv *env, jobject obj)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *out = NULL;
+
+    if (optimize_bands(im, &out))
+    {
+        throwVipsException(env, "Unable to optimize image bands");
+        return JNI_FALSE;
+    }
+    if (out == NULL)
+        return JNI_FALSE;
+    (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
+    g_object_unref(im);
+    return JNI_TRUE;
+}
+
+/**
+ * Attach custom profile data as the embedded profile of a copy of the image,
+ * unless it already has one, so icc operations read it from memory with
+ * embedded=TRUE. Return a new reference, or NULL on error.
+ */
+static VipsImage *
+with_input_profile(JNIEnv *env, VipsImage *im, jbyteArray data)
+{
+    VipsImage *out = NULL;
+    jsize length;
+    jbyte *bytes;
+
+    if (data == NULL || vips_image_get_typeof(im, VIPS_META_ICC_NAME))
+    {
+        g_object_ref(im);
+        return im;
+    }
+    // Metadata is set on a private copy, the image may be shared through the operation cache
+    if (vips_copy(im, &out, NULL))
+        return NULL;
+    length = (*env)->GetArrayLength(env, data);
+    bytes = (*env)->GetByteArrayElements(env, data, NULL);
+    vips_image_set_blob_copy(out, VIPS_META_ICC_NAME, bytes, length);
+    (*env)->ReleaseByteArrayElements(env, data, bytes, JNI_ABORT);
+    return out;
+}
+
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_iccImportNative(JNIEnv *env, jobject obj, jstring input_profile, jbyteArray input_profile_data, jint intent)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *in = with_input_profile(env, im, input_profile_data);
+    VipsImage *out = NULL;
+    const char *input = input_profile != NULL ? (*env)->GetStringUTFChars(env, input_profile, NULL) : NULL;
+    int ret = -1;
+
+    if (in != NULL && input != NULL)
+        ret = vips_icc_import(in, &out, "input_profile", input, "embedded", TRUE, "intent", intent, NULL);
+    else if (in != NULL)
+        ret = vips_icc_import(in, &out, "embedded", TRUE, "intent", intent, NULL);
+    if (input != NULL)
+        (*env)->ReleaseStringUTFChars(env, input_profile, input);
+    if (in != NULL)
+        g_object_unref(in);
+    if (ret)
+    {
+        throwVipsException(env, "Unable to import ICC profile");
+        return;
+    }
+    (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
+    g_object_unref(im);
+}
+
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_iccExportNative(JNIEnv *env, jobject obj, jstring output_profile, jint intent)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *out = NULL;
+    const char *output = (*env)->GetStringUTFChars(env, output_profile, NULL);
+
+    if (vips_icc_export(im, &out, "output_profile", output, "intent", intent, NULL))
+    {
+        (*env)->ReleaseStringUTFChars(env, output_profile, output);
+        throwVipsException(env, "Unable to export ICC profile");
+        return;
+    }
+    (*env)->ReleaseStringUTFChars(env, output_profile, output);
+    (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
+    g_object_unref(im);
+}
+
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_iccTransformNative(JNIEnv *env, jobject obj, jstring output_profile, jstring input_profile, jbyteArray input_profile_data, jint intent)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *in = with_input_profile(env, im, input_profile_data);
+    VipsImage *out = NULL;
+    const char *output = (*env)->GetStringUTFChars(env, output_profile, NULL);
+    const char *input = input_profile != NULL ? (*env)->GetStringUTFChars(env, input_profile, NULL) : NULL;
+    int ret = -1;
+
+    if (in != NULL && input != NULL)
+        ret = vips_icc_transform(in, &out, output, "input_profile", input, "embedded", TRUE, "intent", intent, NULL);
+    else if (in != NULL)
+        ret = vips_icc_transform(in, &out, output, "embedded", TRUE, "intent", intent, NULL);
+    if (input != NULL)
+        (*env)->ReleaseStringUTFChars(env, input_profile, input);
+    (*env)->ReleaseStringUTFChars(env, output_profile, output);
+    if (in != NULL)
+        g_object_unref(in);
+    if (ret)
+    {
+        throwVipsException(env, "Unable to apply ICC transform");
+        return;
+    }
+    (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
+    g_object_unref(im);
+}
+
 JNIEXPORT jint JNICALL
 Java_com_criteo_vips_VipsImage_getNbFrame(JNIEnv *env, jobject obj)
 {
@@ -619,6 +1328,72 @@ Java_com_criteo_vips_VipsImage_getNbFrame(JNIEnv *env, jobject obj)
     return n_pages;
 }
 
+JNIEXPORT jint JNICALL
+Java_com_criteo_vips_VipsImage_getPageHeight(JNIEnv *env, jobject obj)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+
+    return vips_image_get_page_height(im);
+}
+
+JNIEXPORT jintArray JNICALL
+Java_com_criteo_vips_VipsImage_getDelays(JNIEnv *env, jobject obj)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    int *delays = NULL;
+    int n = 0;
+    jintArray ret = NULL;
+
+    if (!vips_image_get_typeof(im, "delay") || vips_image_get_array_int(im, "delay", &delays, &n))
+    {
+        vips_error_clear();
+        return (*env)->NewIntArray(env, 0);
+    }
+    ret = (*env)->NewIntArray(env, n);
+    (*env)->SetIntArrayRegion(env, ret, 0, n, (jint *) delays);
+    return ret;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_criteo_vips_VipsImage_getLoop(JNIEnv *env, jobject obj)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    int loop = 0;
+
+    if (!vips_image_get_typeof(im, "loop") || vips_image_get_int(im, "loop", &loop))
+    {
+        // Missing loop means loop forever
+        vips_error_clear();
+        return 0;
+    }
+    return loop;
+}
+
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_setAnimationNative(JNIEnv *env, jobject obj, jintArray delays, jint loop)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *out = NULL;
+
+    // Metadata is set on a private copy, the image may be shared through the operation cache
+    if (vips_copy(im, &out, NULL))
+    {
+        throwVipsException(env, "Unable to set animation");
+        return;
+    }
+    if (delays != NULL)
+    {
+        jint n = (*env)->GetArrayLength(env, delays);
+        jint *delays_array = (*env)->GetIntArrayElements(env, delays, NULL);
+
+        vips_image_set_array_int(out, "delay", (int *) delays_array, n);
+        (*env)->ReleaseIntArrayElements(env, delays, delays_array, JNI_ABORT);
+    }
+    vips_image_set_int(out, "loop", loop);
+    (*env)->SetLongField(env, obj, handle_fid, (jlong) out);
+    g_object_unref(im);
+}
+
 JNIEXPORT void JNICALL
 Java_com_criteo_vips_VipsImage_release(JNIEnv *env, jobject obj)
 {
@@ -704,6 +1479,383 @@ JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_max1Native(JNIEnv * env, j
     (*env)->SetIntField(env, result_obj, field_Max1Result_y, y);
 }
 
+JNIEXPORT jdoubleArray JNICALL
+Java_com_criteo_vips_VipsImage_stats(JNIEnv *env, jobject obj)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *out = NULL;
+    jdouble *values = NULL;
+    jdoubleArray ret = NULL;
+    int bands = im->Bands;
+    int b;
+
+    // out is a 10 x (bands + 1) matrix, row 0 holds all bands together
+    if (vips_stats(im, &out, NULL) || vips_image_wio_input(out))
+    {
+        VIPS_UNREF(out);
+        throwVipsException(env, "Unable to compute image statistics");
+        return NULL;
+    }
+    values = g_new(jdouble, bands * 5);
+    for (b = 0; b < bands; ++b)
+    {
+        values[b * 5] = *VIPS_MATRIX(out, 0, b + 1);
+        values[b * 5 + 1] = *VIPS_MATRIX(out, 1, b + 1);
+        values[b * 5 + 2] = *VIPS_MATRIX(out, 4, b + 1);
+        values[b * 5 + 3] = *VIPS_MATRIX(out, 5, b + 1);
+        values[b * 5 + 4] = *VIPS_MATRIX(out, 2, b + 1);
+    }
+    ret = (*env)->NewDoubleArray(env, bands * 5);
+    (*env)->SetDoubleArrayRegion(env, ret, 0, bands * 5, values);
+    g_free(values);
+    g_object_unref(out);
+    return ret;
+}
+
+JNIEXPORT void JNICALL
+Java_com_criteo_vips_VipsImage_histogramNative(JNIEnv *env, jobject obj, jint band, jint bins, jlongArray counts)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *hist = NULL;
+    jlong *values = NULL;
+    int bands;
+    int x;
+    int b;
+
+    // hist is a 1 pixel high image, one column per input value and one band per counted band
+    if (vips_hist_find(im, &hist, "band", band, NULL) || vips_image_wio_input(hist))
+    {
+        VIPS_UNREF(hist);
+        throwVipsException(env, "Unable to compute image histogram");
+        return;
+    }
+    bands = hist->Bands;
+    values = g_new0(jlong, bands * bins);
+    for (x = 0; x < hist->Xsize; ++x)
+    {
+        guint *pixel = (guint *) VIPS_IMAGE_ADDR(hist, x, 0);
+        int bin = (int) (((gint64) x * bins) / hist->Xsize);
+
+        for (b = 0; b < bands; ++b)
+            values[b * bins + bin] += pixel[b];
+    }
+    (*env)->SetLongArrayRegion(env, counts, 0, bands * bins, values);
+    g_free(values);
+    g_object_unref(hist);
+}
+
+typedef struct _PaletteBin {
+    int index;
+    guint64 count;
+    guint64 sum[3];
+} PaletteBin;
+
+static gint
+palette_bin_compare(gconstpointer a, gconstpointer b, gpointer user_data)
+{
+    const PaletteBin *bin_a = (const PaletteBin *) a;
+    const PaletteBin *bin_b = (const PaletteBin *) b;
+
+    if (bin_a->count == bin_b->count)
+        return bin_a->index - bin_b->index;
+    return bin_a->count < bin_b->count ? 1 : -1;
+}
+
+static gboolean
+palette_bin_is_neighbour(int a, int b)
+{
+    int shift;
+
+    for (shift = 0; shift < 3 * PALETTE_LEVEL_BITS; shift += PALETTE_LEVEL_BITS)
+        if (abs(((a >> shift) & (PALETTE_LEVELS - 1)) - ((b >> shift) & (PALETTE_LEVELS - 1))) > 1)
+            return FALSE;
+    return TRUE;
+}
+
+JNIEXPORT jdoubleArray JNICALL
+Java_com_criteo_vips_VipsImage_paletteNative(JNIEnv *env, jobject obj, jint n, jboolean merge)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *t[3] = { NULL, NULL, NULL };
+    VipsPel *data = NULL;
+    size_t size = 0;
+    PaletteBin *bins = NULL;
+    PaletteBin *selected = NULL;
+    jdouble *values = NULL;
+    jdoubleArray ret = NULL;
+    guint64 total = 0;
+    int nb_selected = 0;
+    int bands;
+    size_t i;
+    int j;
+
+    // Work on a small sRGB copy, so the source image is left untouched
+    if (vips_thumbnail_image(im, &t[0], PALETTE_THUMBNAIL_SIZE, "height", PALETTE_THUMBNAIL_SIZE, NULL) ||
+        vips_colourspace(t[0], &t[1], VIPS_INTERPRETATION_sRGB, NULL) ||
+        vips_cast_uchar(t[1], &t[2], NULL) ||
+        (data = vips_image_write_to_memory(t[2], &size)) == NULL)
+    {
+        for (j = 0; j < 3; ++j)
+            VIPS_UNREF(t[j]);
+        throwVipsException(env, "Unable to extract image palette");
+        return NULL;
+    }
+    bands = t[2]->Bands;
+    for (j = 0; j < 3; ++j)
+        g_object_unref(t[j]);
+
+    bins = g_new0(PaletteBin, PALETTE_BINS);
+    for (j = 0; j < PALETTE_BINS; ++j)
+        bins[j].index = j;
+    for (i = 0; i + bands <= size; i += bands)
+    {
+        VipsPel *p = data + i;
+        int index;
+
+        // Fully transparent pixels have no visible colour
+        if (bands > 3 && p[3] == 0)
+            continue;
+        index = ((p[0] >> (8 - PALETTE_LEVEL_BITS)) << (2 * PALETTE_LEVEL_BITS)) |
+                ((p[1] >> (8 - PALETTE_LEVEL_BITS)) << PALETTE_LEVEL_BITS) |
+                (p[2] >> (8 - PALETTE_LEVEL_BITS));
+        bins[index].count++;
+        for (j = 0; j < 3; ++j)
+            bins[index].sum[j] += p[j];
+        total++;
+    }
+    g_free(data);
+
+    // Take bins by decreasing count. When merging, a bin next to an already selected one is
+    // a close shade of the same colour and is added to it.
+    g_qsort_with_data(bins, PALETTE_BINS, sizeof(PaletteBin), palette_bin_compare, NULL);
+    selected = g_new0(PaletteBin, VIPS_MAX(VIPS_MIN(n, PALETTE_BINS), 1));
+    for (j = 0; j < PALETTE_BINS && bins[j].count > 0; ++j)
+    {
+        int s = 0;
+
+        if (merge)
+            for (s = 0; s < nb_selected && !palette_bin_is_neighbour(bins[j].index, selected[s].index); ++s)
+                ;
+        if (merge && s < nb_selected)
+        {
+            selected[s].count += bins[j].count;
+            selected[s].sum[0] += bins[j].sum[0];
+            selected[s].sum[1] += bins[j].sum[1];
+            selected[s].sum[2] += bins[j].sum[2];
+        }
+        else if (nb_selected < n)
+            selected[nb_selected++] = bins[j];
+        else if (!merge)
+            break;
+    }
+    g_free(bins);
+
+    if (merge)
+        g_qsort_with_data(selected, nb_selected, sizeof(PaletteBin), palette_bin_compare, NULL);
+    values = g_new(jdouble, nb_selected * 4 + 1);
+    for (j = 0; j < nb_selected; ++j)
+    {
+        values[j * 4] = (double) selected[j].sum[0] / selected[j].count;
+        values[j * 4 + 1] = (double) selected[j].sum[1] / selected[j].count;
+        values[j * 4 + 2] = (double) selected[j].sum[2] / selected[j].count;
+        values[j * 4 + 3] = (double) selected[j].count / total;
+    }
+    ret = (*env)->NewDoubleArray(env, nb_selected * 4);
+    (*env)->SetDoubleArrayRegion(env, ret, 0, nb_selected * 4, values);
+    g_free(values);
+    g_free(selected);
+    return ret;
+}
+
+JNIEXPORT jdoubleArray JNICALL
+Java_com_criteo_vips_VipsImage_analyzeContentNative(JNIEnv *env, jobject obj, jint max_colors)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *t[3] = { NULL, NULL, NULL };
+    VipsPel *data = NULL;
+    size_t size = 0;
+    GHashTable *colors = NULL;
+    guint8 *luminance = NULL;
+    jdouble values[3];
+    jdoubleArray ret = NULL;
+    int width, height, bands;
+    int translucent = 0;
+    int edges = 0;
+    int x, y, i;
+
+    if (vips_thumbnail_image(im, &t[0], ANALYSIS_THUMBNAIL_SIZE, "height", ANALYSIS_THUMBNAIL_SIZE, NULL) ||
+        vips_colourspace(t[0], &t[1], VIPS_INTERPRETATION_sRGB, NULL) ||
+        vips_cast_uchar(t[1], &t[2], NULL) ||
+        (data = vips_image_write_to_memory(t[2], &size)) == NULL)
+    {
+        for (i = 0; i < 3; ++i)
+            VIPS_UNREF(t[i]);
+        throwVipsException(env, "Unable to analyze image content");
+        return NULL;
+    }
+    width = t[2]->Xsize;
+    height = t[2]->Ysize;
+    bands = t[2]->Bands;
+    for (i = 0; i < 3; ++i)
+        g_object_unref(t[i]);
+
+    colors = g_hash_table_new(g_direct_hash, g_direct_equal);
+    luminance = g_new(guint8, width * height);
+    for (i = 0; i < width * height; ++i)
+    {
+        VipsPel *p = data + i * bands;
+        guint alpha = bands > 3 ? p[3] : 255;
+
+        if (g_hash_table_size(colors) <= (guint) max_colors)
+            g_hash_table_add(colors, GUINT_TO_POINTER((guint) p[0] << 24 | (guint) p[1] << 16 | (guint) p[2] << 8 | alpha));
+        if (alpha < 255)
+            translucent++;
+        luminance[i] = (p[0] * 299 + p[1] * 587 + p[2] * 114) / 1000;
+    }
+    for (y = 0; y < height - 1; ++y)
+        for (x = 0; x < width - 1; ++x)
+        {
+            int l = luminance[y * width + x];
+
+            if (abs(l - luminance[y * width + x + 1]) + abs(l - luminance[(y + 1) * width + x]) > ANALYSIS_EDGE_THRESHOLD)
+                edges++;
+        }
+    values[0] = VIPS_MIN(g_hash_table_size(colors), (guint) max_colors + 1);
+    values[1] = (double) translucent / (width * height);
+    values[2] = width > 1 && height > 1 ? (double) edges / ((width - 1) * (height - 1)) : 0;
+    g_hash_table_destroy(colors);
+    g_free(luminance);
+    g_free(data);
+
+    ret = (*env)->NewDoubleArray(env, 3);
+    (*env)->SetDoubleArrayRegion(env, ret, 0, 3, values);
+    return ret;
+}
+
+// Must match com.criteo.vips.HashType
+enum {
+    HASH_TYPE_AHASH = 0,
+    HASH_TYPE_DHASH = 1,
+    HASH_TYPE_PHASH = 2
+};
+
+#define PHASH_SIZE 32
+#define HASH_SIZE 8
+
+static VipsPel *
+hash_pixels(VipsImage *im, int width, int height)
+{
+    VipsImage *t[4] = { NULL, NULL, NULL, NULL };
+    VipsPel *data = NULL;
+    size_t size = 0;
+    int i;
+
+    // Forced thumbnail, greyscale without alpha, one byte per pixel
+    if (!vips_thumbnail_image(im, &t[0], width, "height", height, "size", VIPS_SIZE_FORCE, NULL) &&
+        !vips_colourspace(t[0], &t[1], VIPS_INTERPRETATION_B_W, NULL) &&
+        !vips_extract_band(t[1], &t[2], 0, NULL) &&
+        !vips_cast_uchar(t[2], &t[3], NULL))
+        data = vips_image_write_to_memory(t[3], &size);
+    for (i = 0; i < 4; ++i)
+        VIPS_UNREF(t[i]);
+    if (data != NULL && size != (size_t) width * height)
+    {
+        g_free(data);
+        return NULL;
+    }
+    return data;
+}
+
+static int
+double_compare(const void *a, const void *b)
+{
+    double da = *(const double *) a;
+    double db = *(const double *) b;
+
+    return (da > db) - (da < db);
+}
+
+static jlong
+phash(VipsPel *p)
+{
+    double cosines[HASH_SIZE][PHASH_SIZE];
+    double rows[PHASH_SIZE][HASH_SIZE];
+    double dct[HASH_SIZE * HASH_SIZE];
+    double sorted[HASH_SIZE * HASH_SIZE];
+    double median;
+    jlong hash = 0;
+    int u, v, x, y;
+
+    for (u = 0; u < HASH_SIZE; ++u)
+        for (x = 0; x < PHASH_SIZE; ++x)
+            cosines[u][x] = cos((2 * x + 1) * u * M_PI / (2 * PHASH_SIZE));
+    // Separable DCT-II, only the lowest HASH_SIZE frequencies of each axis are needed
+    for (y = 0; y < PHASH_SIZE; ++y)
+        for (u = 0; u < HASH_SIZE; ++u)
+        {
+            rows[y][u] = 0;
+            for (x = 0; x < PHASH_SIZE; ++x)
+                rows[y][u] += p[y * PHASH_SIZE + x] * cosines[u][x];
+        }
+    for (v = 0; v < HASH_SIZE; ++v)
+        for (u = 0; u < HASH_SIZE; ++u)
+        {
+            dct[v * HASH_SIZE + u] = 0;
+            for (y = 0; y < PHASH_SIZE; ++y)
+                dct[v * HASH_SIZE + u] += rows[y][u] * cosines[v][y];
+        }
+    memcpy(sorted, dct, sizeof(dct));
+    qsort(sorted, HASH_SIZE * HASH_SIZE, sizeof(double), double_compare);
+    median = (sorted[HASH_SIZE * HASH_SIZE / 2 - 1] + sorted[HASH_SIZE * HASH_SIZE / 2]) / 2;
+    for (u = 0; u < HASH_SIZE * HASH_SIZE; ++u)
+        hash = (hash << 1) | (dct[u] > median);
+    return hash;
+}
+
+JNIEXPORT jlong JNICALL
+Java_com_criteo_vips_VipsImage_perceptualHashNative(JNIEnv *env, jobject obj, jint type)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsPel *p = NULL;
+    jlong hash = 0;
+    int x, y;
+
+    switch (type)
+    {
+    case HASH_TYPE_AHASH:
+        if ((p = hash_pixels(im, HASH_SIZE, HASH_SIZE)) != NULL)
+        {
+            int sum = 0;
+
+            for (x = 0; x < HASH_SIZE * HASH_SIZE; ++x)
+                sum += p[x];
+            for (x = 0; x < HASH_SIZE * HASH_SIZE; ++x)
+                hash = (hash << 1) | (p[x] * HASH_SIZE * HASH_SIZE > sum);
+        }
+        break;
+    case HASH_TYPE_DHASH:
+        if ((p = hash_pixels(im, HASH_SIZE + 1, HASH_SIZE)) != NULL)
+            for (y = 0; y < HASH_SIZE; ++y)
+                for (x = 0; x < HASH_SIZE; ++x)
+                    hash = (hash << 1) | (p[y * (HASH_SIZE + 1) + x] > p[y * (HASH_SIZE + 1) + x + 1]);
+        break;
+    case HASH_TYPE_PHASH:
+        if ((p = hash_pixels(im, PHASH_SIZE, PHASH_SIZE)) != NULL)
+            hash = phash(p);
+        break;
+    default:
+        vips_error("perceptualHash", "unknown hash type %d", type);
+        break;
+    }
+    if (p == NULL)
+    {
+        throwVipsException(env, "Unable to compute perceptual hash");
+        return 0;
+    }
+    g_free(p);
+    return hash;
+}
+
 JNIEXPORT jdoubleArray JNICALL
 Java_com_criteo_vips_VipsImage_getPoint(JNIEnv *env, jobject image_obj, jint x, jint y)
 {
@@ -781,6 +1933,150 @@ JNICALL Java_com_criteo_vips_VipsImage_extractArea(JNIEnv *env, jobject image_ob
     return (*env)->NewObject(env, cls, ctor_mid, (jlong) out);
 }
 
+// Release the first count tiles of an extractTilesNative result that will not be returned
+static void
+releaseTiles(JNIEnv *env, jobjectArray tiles, jsize count)
+{
+    jsize i;
+
+    for (i = 0; i < count; ++i)
+    {
+        jobject tile = (*env)->GetObjectArrayElement(env, tiles, i);
+
+        if (tile)
+        {
+            Java_com_criteo_vips_VipsImage_release(env, tile);
+            (*env)->DeleteLocalRef(env, tile);
+        }
+    }
+    (*env)->DeleteLocalRef(env, tiles);
+}
+
+JNIEXPORT jobjectArray JNICALL
+Java_com_criteo_vips_VipsImage_extractTilesNative(JNIEnv *env, jobject obj, jintArray areas)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *source = NULL;
+    jsize n = (*env)->GetArrayLength(env, areas) / 4;
+    jint *a = NULL;
+    jobjectArray ret = NULL;
+    jsize i;
+
+    // Decode once, every tile is a view on the memory copy
+    if ((source = vips_image_copy_memory(im)) == NULL)
+    {
+        throwVipsException(env, "Unable to extract image tiles");
+        return NULL;
+    }
+    if ((ret = (*env)->NewObjectArray(env, n, (*env)->GetObjectClass(env, obj), NULL)) == NULL)
+    {
+        // OutOfMemoryError is pending
+        g_object_unref(source);
+        return NULL;
+    }
+    a = (*env)->GetIntArrayElements(env, areas, NULL);
+    for (i = 0; i < n; ++i)
+    {
+        VipsImage *out = NULL;
+        jobject tile = NULL;
+
+        if (vips_extract_area(source, &out, a[4 * i], a[4 * i + 1], a[4 * i + 2], a[4 * i + 3], NULL) ||
+            (tile = (*env)->NewObject(env, (*env)->GetObjectClass(env, obj), ctor_mid, (jlong) out)) == NULL)
+        {
+            // Set aside a failed NewObject exception, JNI calls are not allowed while it is pending
+            jthrowable pending = (*env)->ExceptionOccurred(env);
+
+            if (pending)
+                (*env)->ExceptionClear(env);
+            if (out)
+                g_object_unref(out);
+            (*env)->ReleaseIntArrayElements(env, areas, a, JNI_ABORT);
+            releaseTiles(env, ret, i);
+            g_object_unref(source);
+            if (pending)
+                (*env)->Throw(env, pending);
+            else
+                throwVipsException(env, "Unable to extract image tiles");
+            return NULL;
+        }
+        (*env)->SetObjectArrayElement(env, ret, i, tile);
+        (*env)->DeleteLocalRef(env, tile);
+    }
+    (*env)->ReleaseIntArrayElements(env, areas, a, JNI_ABORT);
+    g_object_unref(source);
+    return ret;
+}
+
+JNIEXPORT jobjectArray JNICALL
+Java_com_criteo_vips_VipsImage_extractEncodedTilesNative(JNIEnv *env, jobject obj, jintArray areas, jstring extension, jint quality, jboolean strip)
+{
+    VipsImage *im = (VipsImage *) (*env)->GetLongField(env, obj, handle_fid);
+    VipsImage *source = NULL;
+    jsize n = (*env)->GetArrayLength(env, areas) / 4;
+    jint *a = NULL;
+    const char *ext = NULL;
+    jobjectArray ret = NULL;
+    jsize i;
+
+    if ((source = vips_image_copy_memory(im)) == NULL)
+    {
+        throwVipsException(env, "Unable to extract image tiles");
+        return NULL;
+    }
+    if ((ret = (*env)->NewObjectArray(env, n, (*env)->FindClass(env, "[B"), NULL)) == NULL)
+    {
+        // OutOfMemoryError is pending
+        g_object_unref(source);
+        return NULL;
+    }
+    a = (*env)->GetIntArrayElements(env, areas, NULL);
+    ext = (*env)->GetStringUTFChars(env, extension, NULL);
+    for (i = 0; i < n; ++i)
+    {
+        VipsImage *tile = NULL;
+        void *buffer = NULL;
+        size_t length = 0;
+        int status;
+        jbyteArray data;
+
+        if (!(status = vips_extract_area(source, &tile, a[4 * i], a[4 * i + 1], a[4 * i + 2], a[4 * i + 3], NULL)))
+        {
+            if (quality < 0)
+                status = vips_image_write_to_buffer(tile, ext, &buffer, &length, "strip", strip, NULL);
+            else
+                status = vips_image_write_to_buffer(tile, ext, &buffer, &length, "strip", strip, "Q", quality, NULL);
+            g_object_unref(tile);
+        }
+        if (status)
+        {
+            (*env)->ReleaseStringUTFChars(env, extension, ext);
+            (*env)->ReleaseIntArrayElements(env, areas, a, JNI_ABORT);
+            g_object_unref(source);
+            throwVipsException(env, "Unable to encode image tiles");
+            return NULL;
+        }
+        data = (*env)->NewByteArray(env, length);
+        if (data == NULL)
+        {
+            // OutOfMemoryError is pending, encoded tiles are left to the garbage collector
+            g_free(buffer);
+            (*env)->ReleaseStringUTFChars(env, extension, ext);
+            (*env)->ReleaseIntArrayElements(env, areas, a, JNI_ABORT);
+            (*env)->DeleteLocalRef(env, ret);
+            g_object_unref(source);
+            return NULL;
+        }
+        (*env)->SetByteArrayRegion(env, data, 0, length, buffer);
+        (*env)->SetObjectArrayElement(env, ret, i, data);
+        (*env)->DeleteLocalRef(env, data);
+        g_free(buffer);
+    }
+    (*env)->ReleaseStringUTFChars(env, extension, ext);
+    (*env)->ReleaseIntArrayElements(env, areas, a, JNI_ABORT);
+    g_object_unref(source);
+    return ret;
+}
+
 JNIEXPORT void
 JNICALL Java_com_criteo_vips_VipsImage_autorot(JNIEnv *env, jobject image_obj)
 {
@@ -831,3 +2127,45 @@ JNICALL Java_com_criteo_vips_VipsImage_joinNative(JNIEnv *env, jclass cls, jobje
     }
     return (*env)->NewObject(env, cls, ctor_mid, (jlong) out);
 }
+
+JNIEXPORT jobject
+JNICALL Java_com_criteo_vips_VipsImage_arrayJoinNative(JNIEnv *env, jclass cls, jobjectArray images, jint across, jint shim, jdoubleArray background, jint halign, jint valign)
+{
+    jsize n = (*env)->GetArrayLength(env, images);
+    VipsImage **in = g_new(VipsImage *, n);
+    jint length = (*env)->GetArrayLength(env, background);
+    jdouble background_array[MAX_CHANNEL_SIZE] = { 0 };
+    VipsArrayDouble *bg = NULL;
+    VipsImage *out = NULL;
+    int bands = 1;
+    int ret;
+    jsize i;
+
+    for (i = 0; i < n; ++i)
+    {
+        jobject image = (*env)->GetObjectArrayElement(env, images, i);
+        in[i] = (VipsImage *) (*env)->GetLongField(env, image, handle_fid);
+        bands = VIPS_MAX(bands, in[i]->Bands);
+        (*env)->DeleteLocalRef(env, image);
+    }
+    // Cells are embedded with the background, which must have as many values as output bands
+    if (length > bands)
+        length = bands;
+    (*env)->GetDoubleArrayRegion(env, background, 0, length, background_array);
+    bg = vips_array_double_new(background_array, length);
+    ret = vips_arrayjoin(in, &out, n,
+        "across", across,
+        "shim", shim,
+        "background", bg,
+        "halign", halign,
+        "valign", valign,
+        NULL);
+    vips_area_unref((VipsArea *) bg);
+    g_free(in);
+    if (ret)
+    {
+        throwVipsException(env, "Unable to join images");
+        return NULL;
+    }
+    return (*env)->NewObject(env, cls, ctor_mid, (jlong) out);
+}
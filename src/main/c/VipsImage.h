@@ -143,6 +143,38 @@ JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_thumbnailImageNative
 JNIEXPORT jobject JNICALL Java_com_criteo_vips_VipsImage_thumbnailNative
   (JNIEnv *, jclass, jstring, jint, jint, jboolean);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    thumbnailImageCropNative
+ * Signature: (III)V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_thumbnailImageCropNative
+  (JNIEnv *, jobject, jint, jint, jint);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    thumbnailCropNative
+ * Signature: (Ljava/lang/String;III)Lcom/criteo/vips/VipsImage;
+ */
+JNIEXPORT jobject JNICALL Java_com_criteo_vips_VipsImage_thumbnailCropNative
+  (JNIEnv *, jclass, jstring, jint, jint, jint);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    previewNative
+ * Signature: (Ljava/lang/String;I)Lcom/criteo/vips/VipsImage;
+ */
+JNIEXPORT jobject JNICALL Java_com_criteo_vips_VipsImage_previewNative__Ljava_lang_String_2I
+  (JNIEnv *, jclass, jstring, jint);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    previewNative
+ * Signature: ([BII)Lcom/criteo/vips/VipsImage;
+ */
+JNIEXPORT jobject JNICALL Java_com_criteo_vips_VipsImage_previewNative___3BII
+  (JNIEnv *, jclass, jbyteArray, jint, jint);
+
 /*
  * Class:     com_criteo_vips_VipsImage
  * Method:    resizeNative
@@ -159,6 +191,46 @@ JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_resizeNative
 JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_max1Native
   (JNIEnv *, jobject, jobject);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    stats
+ * Signature: ()[D
+ */
+JNIEXPORT jdoubleArray JNICALL Java_com_criteo_vips_VipsImage_stats
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    histogramNative
+ * Signature: (II[J)V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_histogramNative
+  (JNIEnv *, jobject, jint, jint, jlongArray);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    paletteNative
+ * Signature: (IZ)[D
+ */
+JNIEXPORT jdoubleArray JNICALL Java_com_criteo_vips_VipsImage_paletteNative
+  (JNIEnv *, jobject, jint, jboolean);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    perceptualHashNative
+ * Signature: (I)J
+ */
+JNIEXPORT jlong JNICALL Java_com_criteo_vips_VipsImage_perceptualHashNative
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    analyzeContentNative
+ * Signature: (I)[D
+ */
+JNIEXPORT jdoubleArray JNICALL Java_com_criteo_vips_VipsImage_analyzeContentNative
+  (JNIEnv *, jobject, jint);
+
 /*
  * Class:     com_criteo_vips_VipsImage
  * Method:    padNative
@@ -175,6 +247,14 @@ JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_padNative
 JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_cropNative
   (JNIEnv *, jobject, jint, jint, jint, jint);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    smartcropNative
+ * Signature: (III)V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_smartcropNative
+  (JNIEnv *, jobject, jint, jint, jint);
+
 /*
  * Class:     com_criteo_vips_VipsImage
  * Method:    findTrimNative
@@ -191,6 +271,14 @@ JNIEXPORT jintArray JNICALL Java_com_criteo_vips_VipsImage_findTrimNative
 JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_compose
   (JNIEnv *, jobject, jobject);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    compositeNative
+ * Signature: ([Lcom/criteo/vips/Image;[I[I[IZ)V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_compositeNative
+  (JNIEnv *, jobject, jobjectArray, jintArray, jintArray, jintArray, jboolean);
+
 /*
  * Class:     com_criteo_vips_VipsImage
  * Method:    insert
@@ -223,6 +311,14 @@ JNIEXPORT jbyteArray JNICALL Java_com_criteo_vips_VipsImage_writeToArrayNative
 JNIEXPORT jbyteArray JNICALL Java_com_criteo_vips_VipsImage_writePNGToArrayNative
   (JNIEnv *, jobject, jint, jboolean, jint, jboolean);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    writeGIFToArrayNative
+ * Signature: (DIIDZ)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_com_criteo_vips_VipsImage_writeGIFToArrayNative
+  (JNIEnv *, jobject, jdouble, jint, jint, jdouble, jboolean);
+
 /*
  * Class:     com_criteo_vips_VipsImage
  * Method:    writeJPEGToArrayNative
@@ -231,13 +327,21 @@ JNIEXPORT jbyteArray JNICALL Java_com_criteo_vips_VipsImage_writePNGToArrayNativ
 JNIEXPORT jbyteArray JNICALL Java_com_criteo_vips_VipsImage_writeJPEGToArrayNative
   (JNIEnv *, jobject, jint, jboolean);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    writeTIFFNative
+ * Signature: (Ljava/lang/String;IIIZIIZZZZ)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_com_criteo_vips_VipsImage_writeTIFFNative
+  (JNIEnv *, jobject, jstring, jint, jint, jint, jboolean, jint, jint, jboolean, jboolean, jboolean, jboolean);
+
 /*
  * Class:     com_criteo_vips_VipsImage
  * Method:    writeAVIFToArrayNative
- * Signature: (IZI)[B
+ * Signature: (IZIZ)[B
  */
 JNIEXPORT jbyteArray JNICALL Java_com_criteo_vips_VipsImage_writeAVIFToArrayNative
-  (JNIEnv *, jobject, jint, jboolean, jint);
+  (JNIEnv *, jobject, jint, jboolean, jint, jboolean);
 
 /*
  * Class:     com_criteo_vips_VipsImage
@@ -255,6 +359,14 @@ JNIEXPORT jbyteArray JNICALL Java_com_criteo_vips_VipsImage_writeWEBPToArrayNati
 JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_writeToFile
   (JNIEnv *, jobject, jstring);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    dzsaveNative
+ * Signature: (Ljava/lang/String;IIIIILjava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_dzsaveNative
+  (JNIEnv *, jobject, jstring, jint, jint, jint, jint, jint, jstring);
+
 /*
  * Class:     com_criteo_vips_VipsImage
  * Method:    getWidth
@@ -335,6 +447,46 @@ JNIEXPORT jobject JNICALL Java_com_criteo_vips_VipsImage_extractArea
 JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_convertTosRGB
   (JNIEnv *, jobject);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    copyMemory
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_copyMemory
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    optimizeBands
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_criteo_vips_VipsImage_optimizeBands
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    iccImportNative
+ * Signature: (Ljava/lang/String;[BI)V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_iccImportNative
+  (JNIEnv *, jobject, jstring, jbyteArray, jint);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    iccExportNative
+ * Signature: (Ljava/lang/String;I)V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_iccExportNative
+  (JNIEnv *, jobject, jstring, jint);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    iccTransformNative
+ * Signature: (Ljava/lang/String;Ljava/lang/String;[BI)V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_iccTransformNative
+  (JNIEnv *, jobject, jstring, jstring, jbyteArray, jint);
+
 /*
  * Class:     com_criteo_vips_VipsImage
  * Method:    getNbFrame
@@ -343,6 +495,38 @@ JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_convertTosRGB
 JNIEXPORT jint JNICALL Java_com_criteo_vips_VipsImage_getNbFrame
   (JNIEnv *, jobject);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    getPageHeight
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_criteo_vips_VipsImage_getPageHeight
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    getDelays
+ * Signature: ()[I
+ */
+JNIEXPORT jintArray JNICALL Java_com_criteo_vips_VipsImage_getDelays
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    getLoop
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_criteo_vips_VipsImage_getLoop
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    setAnimationNative
+ * Signature: ([II)V
+ */
+JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_setAnimationNative
+  (JNIEnv *, jobject, jintArray, jint);
+
 /*
  * Class:     com_criteo_vips_VipsImage
  * Method:    autorot
@@ -383,6 +567,30 @@ JNIEXPORT void JNICALL Java_com_criteo_vips_VipsImage_release
 JNIEXPORT jobject JNICALL Java_com_criteo_vips_VipsImage_joinNative
   (JNIEnv *, jclass, jobject, jobject, jint);
 
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    arrayJoinNative
+ * Signature: ([Lcom/criteo/vips/Image;II[DII)Lcom/criteo/vips/VipsImage;
+ */
+JNIEXPORT jobject JNICALL Java_com_criteo_vips_VipsImage_arrayJoinNative
+  (JNIEnv *, jclass, jobjectArray, jint, jint, jdoubleArray, jint, jint);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    extractTilesNative
+ * Signature: ([I)[Lcom/criteo/vips/VipsImage;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_criteo_vips_VipsImage_extractTilesNative
+  (JNIEnv *, jobject, jintArray);
+
+/*
+ * Class:     com_criteo_vips_VipsImage
+ * Method:    extractEncodedTilesNative
+ * Signature: ([ILjava/lang/String;IZ)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_criteo_vips_VipsImage_extractEncodedTilesNative
+  (JNIEnv *, jobject, jintArray, jstring, jint, jboolean);
+
 #ifdef __cplusplus
 }
 #endif
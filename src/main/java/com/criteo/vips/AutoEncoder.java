@@ -0,0 +1,196 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import com.criteo.vips.enums.VipsImageFormat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Choose output format, palette mode and quality from the image content.
+ * <p>
+ * Images with few colours are encoded losslessly, as palette PNG or lossless WEBP. Other images are
+ * encoded lossily, with a quality lowered on detailed content where artifacts are masked, and raised on
+ * smooth content where banding shows. JPG is never chosen for an image using its alpha channel.
+ * <p>
+ * Candidates are ranked by expected size. By default the first one is encoded. With an executor,
+ * the top candidates are encoded in parallel and the smallest result is kept.
+ */
+public class AutoEncoder {
+    /**
+     * Edge density from which content is fully detailed and gets the minimum quality. Edges are
+     * pixels of the 128 px analysis thumbnail with a luminance gradient above 48: when a quarter of
+     * them are edges, the image is dense texture where compression artifacts are masked. Below, the
+     * quality moves linearly from maxQuality (no edge) to minQuality. Every lossy format uses it.
+     */
+    static final double DETAILED_EDGE_DENSITY = 0.25;
+
+    private final Set<VipsImageFormat> formats;
+    private int minQuality = 70;
+    private int maxQuality = 85;
+    private int candidates = 1;
+    private ExecutorService executor = null;
+    private boolean strip = true;
+
+    /**
+     * @param formats Allowed output formats among JPG, PNG, WEBP and AVIF, JPG, PNG and WEBP if empty
+     */
+    public AutoEncoder(VipsImageFormat... formats) {
+        if (formats.length == 0)
+            this.formats = EnumSet.of(VipsImageFormat.JPG, VipsImageFormat.PNG, VipsImageFormat.WEBP);
+        else
+            this.formats = EnumSet.copyOf(Arrays.asList(formats));
+    }
+
+    /**
+     * @param minQuality Lossy quality of the most detailed content
+     * @param maxQuality Lossy quality of the smoothest content
+     * @return this encoder
+     */
+    public AutoEncoder setQualityRange(int minQuality, int maxQuality) {
+        this.minQuality = minQuality;
+        this.maxQuality = maxQuality;
+        return this;
+    }
+
+    /**
+     * @param candidates Number of top candidates to encode, the smallest result is kept
+     * @param executor   Executor encoding candidates in parallel, null to encode them sequentially
+     * @return this encoder
+     */
+    public AutoEncoder setCandidates(int candidates, ExecutorService executor) {
+        this.candidates = candidates;
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @param strip Remove metadata from the encoded image
+     * @return this encoder
+     */
+    public AutoEncoder setStrip(boolean strip) {
+        this.strip = strip;
+        return this;
+    }
+
+    /**
+     * Encode image with the best candidate for its content
+     *
+     * @param image Image to encode, rendered into memory when several candidates are encoded
+     * @return encoded image with its format and quality, iterations is the number of encoded candidates
+     * @throws VipsException if error or if no allowed format fits the content
+     */
+    public EncodeResult encode(VipsImage image) throws VipsException {
+        List<Candidate> ranked = rank(image.analyzeContent());
+        if (ranked.isEmpty())
+            throw new VipsException("No allowed format for this image among " + formats);
+        List<Candidate> selected = ranked.subList(0, Math.min(Math.max(candidates, 1), ranked.size()));
+        if (selected.size() > 1)
+            image.copyMemory();
+
+        List<EncodeResult> results = new ArrayList<>();
+        if (executor != null && selected.size() > 1) {
+            List<Future<EncodeResult>> futures = new ArrayList<>();
+            for (Candidate candidate : selected)
+                futures.add(executor.submit(() -> candidate.encode(image, strip)));
+            try {
+                for (Future<EncodeResult> future : futures)
+                    results.add(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof VipsException)
+                    throw (VipsException) e.getCause();
+                throw new VipsException("Unable to encode image: " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new VipsException("Encode interrupted");
+            }
+        } else {
+            for (Candidate candidate : selected)
+                results.add(candidate.encode(image, strip));
+        }
+
+        EncodeResult best = results.get(0);
+        for (EncodeResult result : results)
+            if (result.getData().length < best.getData().length)
+                best = result;
+        return new EncodeResult(best.getData(), best.getFormat(), best.getQuality(), results.size(), true);
+    }
+
+    List<Candidate> rank(ContentAnalysis content) {
+        List<Candidate> ranked = new ArrayList<>();
+        if (content.hasFewColors()) {
+            int colors = Math.max(2, Integer.highestOneBit(content.getColors() - 1) << 1);
+            addCandidate(ranked, new Candidate(VipsImageFormat.PNG, -1, Math.min(colors, ContentAnalysis.MAX_COLORS)));
+            addCandidate(ranked, new Candidate(VipsImageFormat.WEBP, -1, 0));
+        }
+        double detail = Math.min(1.0, content.getEdgeDensity() / DETAILED_EDGE_DENSITY);
+        int quality = (int) Math.round(maxQuality - (maxQuality - minQuality) * detail);
+        addCandidate(ranked, new Candidate(VipsImageFormat.AVIF, quality, 0));
+        addCandidate(ranked, new Candidate(VipsImageFormat.WEBP, quality, 0));
+        if (!content.usesAlpha())
+            addCandidate(ranked, new Candidate(VipsImageFormat.JPG, quality, 0));
+        if (!content.hasFewColors())
+            addCandidate(ranked, new Candidate(VipsImageFormat.PNG, -1, 0));
+        return ranked;
+    }
+
+    private void addCandidate(List<Candidate> ranked, Candidate candidate) {
+        if (formats.contains(candidate.format))
+            ranked.add(candidate);
+    }
+
+    /**
+     * One encoder configuration: lossy if quality >= 0, palette PNG if colors > 0, lossless otherwise
+     */
+    static class Candidate {
+        final VipsImageFormat format;
+        final int quality;
+        final int colors;
+
+        Candidate(VipsImageFormat format, int quality, int colors) {
+            this.format = format;
+            this.quality = quality;
+            this.colors = colors;
+        }
+
+        EncodeResult encode(VipsImage image, boolean strip) throws VipsException {
+            byte[] data;
+            switch (format) {
+                case PNG:
+                    data = image.writePNGToArray(9, colors > 0, colors > 0 ? colors : 256, strip);
+                    break;
+                case WEBP:
+                    data = image.writeWEBPToArray(quality < 0 ? 100 : quality, quality < 0, strip);
+                    break;
+                case AVIF:
+                    data = image.writeAVIFToArray(quality, false, 5, strip);
+                    break;
+                default:
+                    data = image.writeJPEGToArray(quality, strip);
+                    break;
+            }
+            return new EncodeResult(data, format, quality, 1, true);
+        }
+    }
+}
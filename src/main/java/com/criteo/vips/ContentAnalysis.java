@@ -0,0 +1,66 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+/**
+ * Cheap content statistics measured on a small sRGB copy of an image, see {@link VipsImage#analyzeContent()}
+ */
+public class ContentAnalysis {
+    /**
+     * Colours are counted up to this value, more colours are reported as MAX_COLORS + 1
+     */
+    public static final int MAX_COLORS = 256;
+
+    private final int colors;
+    private final double translucency;
+    private final double edgeDensity;
+
+    public ContentAnalysis(int colors, double translucency, double edgeDensity) {
+        this.colors = colors;
+        this.translucency = translucency;
+        this.edgeDensity = edgeDensity;
+    }
+
+    /**
+     * @return number of distinct RGBA colours, MAX_COLORS + 1 if there are more
+     */
+    public int getColors() {
+        return colors;
+    }
+
+    /**
+     * @return fraction of pixels which are not fully opaque
+     */
+    public double getTranslucency() {
+        return translucency;
+    }
+
+    /**
+     * @return fraction of pixels on a sharp luminance edge
+     */
+    public double getEdgeDensity() {
+        return edgeDensity;
+    }
+
+    public boolean hasFewColors() {
+        return colors <= MAX_COLORS;
+    }
+
+    public boolean usesAlpha() {
+        return translucency > 0;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import com.criteo.vips.enums.VipsImageFormat;
+
+/**
+ * Encoded image with the parameters chosen to produce it
+ */
+public class EncodeResult {
+    private final byte[] data;
+    private final VipsImageFormat format;
+    private final int quality;
+    private final int iterations;
+    private final boolean targetMet;
+
+    public EncodeResult(byte[] data, VipsImageFormat format, int quality, int iterations, boolean targetMet) {
+        this.data = data;
+        this.format = format;
+        this.quality = quality;
+        this.iterations = iterations;
+        this.targetMet = targetMet;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public VipsImageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return encoder quality, -1 for a lossless encode
+     */
+    public int getQuality() {
+        return quality;
+    }
+
+    /**
+     * @return number of encodes run to choose the quality
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return false if no quality in the searched range reaches the target, the closest result is returned
+     */
+    public boolean isTargetMet() {
+        return targetMet;
+    }
+}
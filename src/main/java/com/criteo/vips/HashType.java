@@ -0,0 +1,50 @@
+/*
+  Copyright (c) 2022 Criteo
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+      http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Perceptual hash algorithm used by {@link Image#perceptualHash(HashType)}
+ */
+public enum HashType {
+    // 8x8 greyscale thumbnail, one bit per pixel brighter than the mean
+    AHash(0),
+    // 9x8 greyscale thumbnail, one bit per pixel brighter than its right neighbour
+    DHash(1),
+    // 32x32 greyscale thumbnail, one bit per lowest 8x8 DCT coefficient above their median
+    PHash(2);
+
+    private final int value;
+    private static final Map<Integer, HashType> map = new HashMap<>();
+
+    HashType(int i) {
+        value = i;
+    }
+
+    static {
+        for (HashType e : HashType.values()) {
+            map.put(e.value, e);
+        }
+    }
+
+    public static HashType valueOf(int i) {
+        return map.get(i);
+    }
+
+    public int getValue() {
+        return value;
+    }
+}
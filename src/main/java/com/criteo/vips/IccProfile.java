@@ -0,0 +1,150 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ICC profile usable by the VipsImage icc* operations.
+ * <p>
+ * Custom profiles keep their data in memory. As an input profile, the data is attached to the
+ * image as its embedded profile, so no file is read. libvips only accepts output profiles by
+ * name, so the data is written once, on first use as an output profile, in a directory private
+ * to this JVM.
+ * <p>
+ * Registering the same data again returns the same instance for the last {@link #DEDUP_SIZE}
+ * distinct profiles. This only deduplicates the profile bytes and files: libvips 8.12 doesn't
+ * keep parsed profiles, so lcms parses the profile again on every icc operation.
+ */
+public final class IccProfile {
+    // libvips built-in profiles
+    public static final IccProfile SRGB = new IccProfile("srgb", null, null);
+    public static final IccProfile CMYK = new IccProfile("cmyk", null, null);
+
+    static final int DEDUP_SIZE = 64;
+
+    private static final Map<String, IccProfile> dedup = new LinkedHashMap<String, IccProfile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IccProfile> eldest) {
+            return size() > DEDUP_SIZE;
+        }
+    };
+
+    private static Path directory;
+
+    private final String hash;
+    private final byte[] data;
+    private volatile String name;
+
+    private IccProfile(String name, String hash, byte[] data) {
+        this.name = name;
+        this.hash = hash;
+        this.data = data;
+    }
+
+    /**
+     * Get the profile stored in the given ICC data
+     *
+     * @param profile ICC profile data
+     * @return the same instance if the same data has been registered recently
+     */
+    public static IccProfile fromBytes(byte[] profile) {
+        String hash = sha256(profile);
+        synchronized (dedup) {
+            IccProfile known = dedup.get(hash);
+            if (known == null) {
+                known = new IccProfile(null, hash, Arrays.copyOf(profile, profile.length));
+                dedup.put(hash, known);
+            }
+            return known;
+        }
+    }
+
+    /**
+     * @return the name or file path passed to libvips, writing custom profiles on first call
+     * @throws VipsException if the profile can't be stored
+     */
+    public String getName() throws VipsException {
+        if (name == null) {
+            synchronized (this) {
+                if (name == null)
+                    name = store();
+            }
+        }
+        return name;
+    }
+
+    /**
+     * @return profile data, null for a libvips built-in profile
+     */
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return libvips built-in profile name, null for a custom profile
+     */
+    String getBuiltinName() {
+        return data == null ? name : null;
+    }
+
+    private String store() throws VipsException {
+        try {
+            Path file = getDirectory().resolve(hash + ".icc");
+            if (!Files.isRegularFile(file)) {
+                Files.write(file, data);
+                file.toFile().deleteOnExit();
+            }
+            return file.toAbsolutePath().toString();
+        } catch (IOException e) {
+            throw new VipsException("Unable to store ICC profile: " + e.getMessage());
+        }
+    }
+
+    private static synchronized Path getDirectory() throws IOException {
+        if (directory == null) {
+            // createTempDirectory is owner-only on POSIX
+            directory = Files.createTempDirectory("jvips-icc");
+            directory.toFile().deleteOnExit();
+        }
+        return directory;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return data == null ? name : "icc:" + hash;
+    }
+}
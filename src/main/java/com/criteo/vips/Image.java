@@ -19,6 +19,7 @@ package com.criteo.vips;
 import com.criteo.vips.enums.*;
 
 import java.awt.*;
+import java.util.List;
 
 public interface Image extends AutoCloseable {
     /**
@@ -58,6 +59,65 @@ public interface Image extends AutoCloseable {
      */
     Max1Result max1() throws VipsException;
 
+    /**
+     * Find min, max, mean, standard deviation and sum of each band in one pass
+     *
+     * @return 5 values per band: for band b, min at [5 * b], max at [5 * b + 1], mean at [5 * b + 2],
+     * standard deviation at [5 * b + 3] and sum at [5 * b + 4]
+     * @throws VipsException if error
+     */
+    double[] stats() throws VipsException;
+
+    /**
+     * Count the pixel values of an integer VipsImage into bins of equal width, in one pass
+     *
+     * @param band   Band to count, or -1 to count all bands
+     * @param bins   Number of bins per band
+     * @param counts Output counts: for band b, bin i count is at [bins * b + i]
+     * @throws VipsException if error or if counts is too small
+     */
+    void histogram(int band, int bins, long[] counts) throws VipsException;
+
+    /**
+     * Find the k dominant sRGB colours of this VipsImage, this VipsImage is left untouched
+     * <p>
+     * Close shades are merged into the same dominant colour.
+     *
+     * @param k Maximum number of colours
+     * @return colours sorted by decreasing weight
+     * @throws VipsException if error
+     */
+    WeightedPixelPacket[] dominantColors(int k) throws VipsException;
+
+    /**
+     * Find the n most frequent sRGB colours of this VipsImage, this VipsImage is left untouched
+     *
+     * @param n Maximum number of colours
+     * @return colours sorted by decreasing weight
+     * @throws VipsException if error
+     */
+    WeightedPixelPacket[] palette(int n) throws VipsException;
+
+    /**
+     * Compute a 64 bits perceptual hash of this VipsImage, this VipsImage is left untouched
+     * <p>
+     * Near duplicate images have hashes with a small Hamming distance, ie. Long.bitCount(a ^ b).
+     *
+     * @param type Hash algorithm
+     * @return the hash
+     * @throws VipsException if error
+     */
+    long perceptualHash(HashType type) throws VipsException;
+
+    /**
+     * Measure colour count, alpha usage and edge density on a small copy of this VipsImage,
+     * this VipsImage is left untouched
+     *
+     * @return content statistics
+     * @throws VipsException if error
+     */
+    ContentAnalysis analyzeContent() throws VipsException;
+
     /**
      * Get the format of each band element.
      *
@@ -148,6 +208,16 @@ public interface Image extends AutoCloseable {
      */
     void thumbnailImage(int width, int height, boolean scale) throws VipsException;
 
+    /**
+     * Make a thumbnail of this VipsImage filling the target dimension, then crop what overflows
+     *
+     * @param width  Target width
+     * @param height Target height
+     * @param crop   Strategy to find the area to keep
+     * @throws VipsException if error
+     */
+    void thumbnailImage(int width, int height, VipsInteresting crop) throws VipsException;
+
     /**
      * Make a thumbnail of this VipsImage with new target dimension
      *
@@ -190,6 +260,16 @@ public interface Image extends AutoCloseable {
      */
     void crop(Rectangle rectangle) throws VipsException;
 
+    /**
+     * Crop this VipsImage to the target dimension, keeping its most interesting area
+     *
+     * @param width       Target width
+     * @param height      Target height
+     * @param interesting Strategy to find the area to keep
+     * @throws VipsException if error
+     */
+    void smartcrop(int width, int height, VipsInteresting interesting) throws VipsException;
+
     /**
      * Find VipsImage bounding box
      *
@@ -208,6 +288,18 @@ public interface Image extends AutoCloseable {
      * @throws VipsException if error
      */
     void compose(Image sub) throws VipsException;
+
+    /**
+     * Blend layers over this VipsImage in a single pass, from the bottom layer to the top one
+     *
+     * @param layers        VipsImages to draw over this VipsImage
+     * @param modes         Blend mode of each layer
+     * @param x             Left position of each layer
+     * @param y             Top position of each layer
+     * @param premultiplied If enabled, images already have premultiplied alpha
+     * @throws VipsException if error
+     */
+    void composite(List<Image> layers, List<VipsBlendMode> modes, int[] x, int[] y, boolean premultiplied) throws VipsException;
     
     /**
      * Insert a sub VipsImage into this VipsImage at (x, y) coordinates
@@ -250,6 +342,20 @@ public interface Image extends AutoCloseable {
      */
     byte[] writeToArray(VipsImageFormat imageFormat, int quality, boolean strip) throws VipsException;
 
+    /**
+     * Write VipsImage to byte array, after dropping its redundant bands if optimizeBands is enabled
+     *
+     * @param imageFormat   Target extension
+     *                      Could not be GIF because libvips can't save in this format
+     * @param quality       Output quality
+     * @param strip         Removes all metadata from image
+     * @param optimizeBands Drop an opaque alpha channel and equal RGB channels before encoding
+     * @return Byte array of encoded VipsImageImpl
+     * @throws VipsException if error
+     * @see #optimizeBands()
+     */
+    byte[] writeToArray(VipsImageFormat imageFormat, int quality, boolean strip, boolean optimizeBands) throws VipsException;
+
     /**
      * Write VipsImage to byte array in PNG output format
      *
@@ -262,6 +368,20 @@ public interface Image extends AutoCloseable {
      */
     byte[] writePNGToArray(int compression, boolean palette, int colors, boolean strip) throws VipsException;
 
+    /**
+     * Write VipsImage to byte array in GIF output format, animated if it has several pages
+     *
+     * @param dither             Amount of dithering, from 0 to 1
+     * @param effort             Quantisation effort, from 1 (fastest) to 10
+     * @param bitdepth           Number of bits per pixel, from 1 to 8
+     * @param interframeMaxError Maximum error to reuse a pixel of the previous frame, 0 to disable.
+     *                           Ignored by libvips versions before 8.13
+     * @param strip              Removes all metadata from image
+     * @return Byte array of encoded VipsImageImpl
+     * @throws VipsException if error
+     */
+    byte[] writeGIFToArray(double dither, int effort, int bitdepth, double interframeMaxError, boolean strip) throws VipsException;
+
     /**
      * Write a VIPS Image to byte array in JPEG output format
      *
@@ -272,6 +392,24 @@ public interface Image extends AutoCloseable {
      */
     byte[] writeJPEGToArray(int quality, boolean strip) throws VipsException;
 
+    /**
+     * Write a VIPS Image to byte array in TIFF output format
+     *
+     * @param spec Compression, tiling and pyramid options
+     * @return Byte array of encoded VipsImageImpl
+     * @throws VipsException if error
+     */
+    byte[] writeTIFFToArray(TiffSpec spec) throws VipsException;
+
+    /**
+     * Write a VIPS Image to a TIFF file
+     *
+     * @param name Output file name
+     * @param spec Compression, tiling and pyramid options
+     * @throws VipsException if error
+     */
+    void writeTIFFToFile(String name, TiffSpec spec) throws VipsException;
+
     /**
      * Write a VIPS Image to byte array in WEBP output format
      *
@@ -291,6 +429,28 @@ public interface Image extends AutoCloseable {
      */
     void writeToFile(String name) throws VipsException;
 
+    /**
+     * Write this VipsImage as a tile pyramid
+     *
+     * @param basename Output directory and name, eg. "out/image" writes "out/image.dzi" and "out/image_files"
+     *                 with the DeepZoom layout
+     * @param spec     Pyramid layout, depth, container and tile format
+     * @throws VipsException if error
+     */
+    void dzsave(String basename, TileSpec spec) throws VipsException;
+
+    /**
+     * Write this VipsImage as a tile pyramid, then give each tile to consumer
+     * <p>
+     * Tiles are written by libvips in one pass to a temporary directory, then consumed level by level
+     * and row by row, and deleted. DeepZoom, Zoomify and Google layouts are supported.
+     *
+     * @param spec     Pyramid layout, depth and tile format, the container is ignored
+     * @param consumer Tile consumer
+     * @throws VipsException if error
+     */
+    void dzsave(TileSpec spec, TileConsumer consumer) throws VipsException;
+
     /**
      * @return VipsImage width
      */
@@ -346,6 +506,56 @@ public interface Image extends AutoCloseable {
      */
     VipsImage extractArea(int left, int top, int width, int height) throws VipsException;
 
+    /**
+     * Extract many areas of this VipsImage, which is decoded into memory once
+     *
+     * @param areas Areas to extract
+     * @return one VipsImage per area, in the same order
+     * @throws VipsException if error
+     */
+    List<VipsImage> extractTiles(List<Rectangle> areas) throws VipsException;
+
+    /**
+     * Extract and encode many areas of this VipsImage, which is decoded into memory once
+     *
+     * @param areas   Areas to extract
+     * @param format  Output format
+     * @param quality Encoder quality, -1 for the encoder default
+     * @param strip   Remove metadata
+     * @return one encoded buffer per area, in the same order
+     * @throws VipsException if error
+     */
+    List<byte[]> extractTiles(List<Rectangle> areas, VipsImageFormat format, int quality, boolean strip) throws VipsException;
+
+    /**
+     * Render this VipsImage into memory, so following operations don't run its pipeline again
+     *
+     * @throws VipsException if error
+     */
+    void copyMemory() throws VipsException;
+
+    /**
+     * Drop redundant bands: an alpha channel which is fully opaque, and RGB channels which are all equal.
+     * An RGB image with equal channels becomes a 1 band B_W image.
+     *
+     * @return true if bands were dropped
+     * @throws VipsException if error
+     */
+    boolean optimizeBands() throws VipsException;
+
+    /**
+     * Encode this VipsImage with the encoder quality reaching target, found by bisection
+     * <p>
+     * This VipsImage is rendered into memory first. A minimum SSIM requires the format to keep all bands
+     * of this VipsImage, eg. no alpha channel for JPG.
+     *
+     * @param format Lossy output format
+     * @param target Target size and/or SSIM
+     * @return encoded image, chosen quality and number of encodes
+     * @throws VipsException if error
+     */
+    EncodeResult encodeForTarget(VipsImageFormat format, TargetSpec target) throws VipsException;
+
     /**
      * Convert image colorspace to sRGB
      *
@@ -353,11 +563,84 @@ public interface Image extends AutoCloseable {
      */
     void convertTosRGB() throws VipsException;
 
+    /**
+     * Import this VipsImage from device space to PCS using its embedded ICC profile
+     *
+     * @param intent Rendering intent
+     * @throws VipsException if error or if this VipsImage has no embedded profile
+     */
+    void iccImport(VipsIntent intent) throws VipsException;
+
+    /**
+     * Import this VipsImage from device space to PCS using its embedded ICC profile,
+     * or inputProfile if it has none
+     *
+     * @param inputProfile Fallback input profile
+     * @param intent       Rendering intent
+     * @throws VipsException if error
+     */
+    void iccImport(IccProfile inputProfile, VipsIntent intent) throws VipsException;
+
+    /**
+     * Export this VipsImage from PCS to device space
+     *
+     * @param outputProfile Output profile
+     * @param intent        Rendering intent
+     * @throws VipsException if error
+     */
+    void iccExport(IccProfile outputProfile, VipsIntent intent) throws VipsException;
+
+    /**
+     * Transform this VipsImage from its embedded ICC profile to outputProfile
+     *
+     * @param outputProfile Output profile
+     * @param intent        Rendering intent
+     * @throws VipsException if error
+     */
+    void iccTransform(IccProfile outputProfile, VipsIntent intent) throws VipsException;
+
+    /**
+     * Transform this VipsImage from its embedded ICC profile, or inputProfile if it has none, to outputProfile
+     *
+     * @param outputProfile Output profile
+     * @param inputProfile  Fallback input profile
+     * @param intent        Rendering intent
+     * @throws VipsException if error
+     */
+    void iccTransform(IccProfile outputProfile, IccProfile inputProfile, VipsIntent intent) throws VipsException;
+
     /**
      * @return Image frame number
      */
     int getNbFrame();
 
+    /**
+     * Frames of an image loaded with all its pages are stacked vertically, so
+     * resize, crop, pad and thumbnail operations are applied to every frame.
+     *
+     * @return Height of a single frame, the image height if it has only one
+     */
+    int getPageHeight();
+
+    /**
+     * @return Delay of each frame in milliseconds, empty if not animated
+     */
+    int[] getDelays();
+
+    /**
+     * @return Number of times the animation plays, 0 for infinite
+     */
+    int getLoop();
+
+    /**
+     * Set the animation metadata used by the WebP and GIF savers
+     *
+     * @param delays Delay of each frame in milliseconds
+     * @param loop   Number of times the animation plays, 0 for infinite
+     * @throws VipsException if error
+     */
+    void setAnimation(int[] delays, int loop) throws VipsException;
+
     /**
      * Apply an auto rotation according to the image EXIF metadata
      *
@@ -0,0 +1,52 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+/**
+ * Full reference quality metrics between two images of the same dimension and bands.
+ * <p>
+ * Metrics are computed by a single libvips pipeline over all bands, alpha included. Neither image is modified.
+ */
+public class ImageMetrics extends Vips {
+    /**
+     * Compute the peak signal-to-noise ratio between two images
+     *
+     * @param a Reference image
+     * @param b Compared image
+     * @return PSNR in dB, positive infinity if images are identical
+     * @throws VipsException if error or if dimensions differ
+     */
+    public static double psnr(VipsImage a, VipsImage b) throws VipsException {
+        return psnrNative(a, b);
+    }
+
+    private static native double psnrNative(VipsImage a, VipsImage b) throws VipsException;
+
+    /**
+     * Compute the mean structural similarity index between two images, with a gaussian window of sigma 1.5
+     *
+     * @param a Reference image
+     * @param b Compared image
+     * @return SSIM, 1.0 if images are identical
+     * @throws VipsException if error or if dimensions differ
+     */
+    public static double ssim(VipsImage a, VipsImage b) throws VipsException {
+        return ssimNative(a, b);
+    }
+
+    private static native double ssimNative(VipsImage a, VipsImage b) throws VipsException;
+}
@@ -16,6 +16,8 @@
 
 package com.criteo.vips;
 
+import java.util.Objects;
+
 public class PixelPacket extends Vips {
     double r;
     double g;
@@ -71,11 +73,18 @@ public class PixelPacket extends Vips {
 
     @Override
     public boolean equals(Object o) {
-        if (o instanceof PixelPacket) {
+        // Subclasses add fields, only packets of the same class can be equal
+        if (o != null && o.getClass() == getClass()) {
             PixelPacket pixelPacket = (PixelPacket) o;
 
-            return r == pixelPacket.r && g == pixelPacket.g && b == pixelPacket.b && a == pixelPacket.a;
+            return Double.compare(r, pixelPacket.r) == 0 && Double.compare(g, pixelPacket.g) == 0
+                    && Double.compare(b, pixelPacket.b) == 0 && Double.compare(a, pixelPacket.a) == 0;
         }
         return false;
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(r, g, b, a);
+    }
 }
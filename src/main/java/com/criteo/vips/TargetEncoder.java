@@ -0,0 +1,124 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import com.criteo.vips.enums.VipsImageFormat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Bisection on encoder quality, see {@link VipsImage#encodeForTarget(VipsImageFormat, TargetSpec)}.
+ * Encoded buffers and SSIM are kept per quality, so a quality is never encoded twice.
+ */
+class TargetEncoder {
+    private final VipsImage image;
+    private final VipsImageFormat format;
+    private final TargetSpec spec;
+    private final Map<Integer, byte[]> encoded = new HashMap<>();
+    private final Map<Integer, Double> similarities = new HashMap<>();
+
+    TargetEncoder(VipsImage image, VipsImageFormat format, TargetSpec spec) {
+        this.image = image;
+        this.format = format;
+        this.spec = spec;
+    }
+
+    EncodeResult run() throws VipsException {
+        int lo = spec.getMinQuality();
+        int hi = spec.getMaxQuality();
+        int quality;
+        boolean met;
+
+        // Render the source pipeline once, only the encode step is repeated
+        image.copyMemory();
+        if (spec.getMinSsim() > 0) {
+            quality = lowest(lo, hi, this::isSimilar);
+            met = quality >= 0;
+            if (!met)
+                quality = hi;
+            if (spec.getMaxBytes() > 0 && !fits(quality)) {
+                int smaller = highest(lo, quality, this::fits);
+                quality = smaller >= 0 ? smaller : lo;
+                met = false;
+            }
+        } else if (spec.getMaxBytes() > 0) {
+            quality = highest(lo, hi, this::fits);
+            met = quality >= 0;
+            if (!met)
+                quality = lo;
+        } else {
+            quality = hi;
+            met = true;
+        }
+        return new EncodeResult(encode(quality), format, quality, encoded.size(), met);
+    }
+
+    /**
+     * @return lowest quality in [lo, hi] accepted by target, which accepts every quality above it, or -1
+     */
+    private int lowest(int lo, int hi, IntPredicate target) {
+        if (!target.test(hi))
+            return -1;
+        if (target.test(lo))
+            return lo;
+        for (int i = 2; hi - lo > spec.getTolerance() && i < spec.getMaxIterations(); ++i) {
+            int mid = (lo + hi) >>> 1;
+            if (target.test(mid))
+                hi = mid;
+            else
+                lo = mid;
+        }
+        return hi;
+    }
+
+    /**
+     * @return highest quality in [lo, hi] accepted by target, which accepts every quality below it, or -1
+     */
+    private int highest(int lo, int hi, IntPredicate target) {
+        if (!target.test(lo))
+            return -1;
+        if (target.test(hi))
+            return hi;
+        for (int i = 2; hi - lo > spec.getTolerance() && i < spec.getMaxIterations(); ++i) {
+            int mid = (lo + hi) >>> 1;
+            if (target.test(mid))
+                lo = mid;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private byte[] encode(int quality) {
+        return encoded.computeIfAbsent(quality, q -> image.writeToArray(format, q, spec.isStrip()));
+    }
+
+    private boolean fits(int quality) {
+        return encode(quality).length <= spec.getMaxBytes();
+    }
+
+    private boolean isSimilar(int quality) {
+        return similarities.computeIfAbsent(quality, q -> {
+            byte[] data = encode(q);
+            try (VipsImage decoded = new VipsImage(data, data.length)) {
+                return ImageMetrics.ssim(image, decoded);
+            }
+        }) >= spec.getMinSsim();
+    }
+}
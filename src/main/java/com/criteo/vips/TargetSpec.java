@@ -0,0 +1,118 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+/**
+ * Describe the target of {@link VipsImage#encodeForTarget(com.criteo.vips.enums.VipsImageFormat, TargetSpec)}.
+ * <p>
+ * With a minimum SSIM, the lowest quality reaching it is chosen. With a maximum size, the highest quality
+ * fitting in it is chosen. With both, the SSIM target is lowered until the encoded image fits in the size.
+ */
+public class TargetSpec {
+    private long maxBytes = 0;
+    private double minSsim = 0;
+    private int minQuality = 10;
+    private int maxQuality = 95;
+    private int tolerance = 1;
+    // Two endpoint encodes, then ceil(log2((95 - 10) / 1)) = 7 bisections to reach the tolerance
+    private int maxIterations = 9;
+    private boolean strip = true;
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public double getMinSsim() {
+        return minSsim;
+    }
+
+    public int getMinQuality() {
+        return minQuality;
+    }
+
+    public int getMaxQuality() {
+        return maxQuality;
+    }
+
+    public int getTolerance() {
+        return tolerance;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public boolean isStrip() {
+        return strip;
+    }
+
+    /**
+     * @param maxBytes Maximum encoded size, 0 for no limit
+     * @return this spec
+     */
+    public TargetSpec setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * @param minSsim Minimum SSIM between the encoded and the source image, 0 for no limit
+     * @return this spec
+     */
+    public TargetSpec setMinSsim(double minSsim) {
+        this.minSsim = minSsim;
+        return this;
+    }
+
+    /**
+     * @param minQuality Lowest encoder quality to try
+     * @param maxQuality Highest encoder quality to try
+     * @return this spec
+     */
+    public TargetSpec setQualityRange(int minQuality, int maxQuality) {
+        this.minQuality = minQuality;
+        this.maxQuality = maxQuality;
+        return this;
+    }
+
+    /**
+     * @param tolerance Stop searching once the quality is known within this many steps
+     * @return this spec
+     */
+    public TargetSpec setTolerance(int tolerance) {
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * @param maxIterations Maximum number of encodes per searched target
+     * @return this spec
+     */
+    public TargetSpec setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * @param strip Remove metadata from the encoded image
+     * @return this spec
+     */
+    public TargetSpec setStrip(boolean strip) {
+        this.strip = strip;
+        return this;
+    }
+}
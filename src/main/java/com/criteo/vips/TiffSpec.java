@@ -0,0 +1,149 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import com.criteo.vips.enums.VipsForeignTiffCompression;
+import com.criteo.vips.enums.VipsForeignTiffPredictor;
+
+/**
+ * Describe the TIFF written by {@link VipsImage#writeTIFFToFile(String, TiffSpec)}.
+ * Defaults are the libvips ones: a single uncompressed strip-based page.
+ */
+public class TiffSpec {
+    private VipsForeignTiffCompression compression = VipsForeignTiffCompression.None;
+    private VipsForeignTiffPredictor predictor = VipsForeignTiffPredictor.Horizontal;
+    private int quality = 75;
+    private boolean tile = false;
+    private int tileWidth = 128;
+    private int tileHeight = 128;
+    private boolean pyramid = false;
+    private boolean subifd = false;
+    private boolean bigtiff = false;
+    private boolean strip = false;
+
+    public VipsForeignTiffCompression getCompression() {
+        return compression;
+    }
+
+    public VipsForeignTiffPredictor getPredictor() {
+        return predictor;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public boolean isTile() {
+        return tile;
+    }
+
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    public boolean isPyramid() {
+        return pyramid;
+    }
+
+    public boolean isSubifd() {
+        return subifd;
+    }
+
+    public boolean isBigtiff() {
+        return bigtiff;
+    }
+
+    public boolean isStrip() {
+        return strip;
+    }
+
+    /**
+     * @param compression Compression of each strip or tile
+     * @param predictor   Predictor applied before Deflate, LZW or ZSTD compression
+     * @return this spec
+     */
+    public TiffSpec setCompression(VipsForeignTiffCompression compression, VipsForeignTiffPredictor predictor) {
+        this.compression = compression;
+        this.predictor = predictor;
+        return this;
+    }
+
+    /**
+     * @param quality Quality factor of JPEG and WEBP compression
+     * @return this spec
+     */
+    public TiffSpec setQuality(int quality) {
+        this.quality = quality;
+        return this;
+    }
+
+    /**
+     * Write tiles instead of strips
+     *
+     * @param tileWidth  Tile width, a multiple of 16
+     * @param tileHeight Tile height, a multiple of 16
+     * @return this spec
+     */
+    public TiffSpec setTile(int tileWidth, int tileHeight) {
+        this.tile = true;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        return this;
+    }
+
+    /**
+     * @param pyramid Write a pyramid of halved resolution levels, enabling tiles too
+     * @return this spec
+     */
+    public TiffSpec setPyramid(boolean pyramid) {
+        if (pyramid)
+            this.tile = true;
+        this.pyramid = pyramid;
+        return this;
+    }
+
+    /**
+     * @param subifd Store pyramid levels as sub-IFDs of the first page instead of following pages
+     * @return this spec
+     */
+    public TiffSpec setSubifd(boolean subifd) {
+        this.subifd = subifd;
+        return this;
+    }
+
+    /**
+     * @param bigtiff Use 64 bits offsets, needed above 4 GB
+     * @return this spec
+     */
+    public TiffSpec setBigtiff(boolean bigtiff) {
+        this.bigtiff = bigtiff;
+        return this;
+    }
+
+    /**
+     * @param strip Remove metadata
+     * @return this spec
+     */
+    public TiffSpec setStrip(boolean strip) {
+        this.strip = strip;
+        return this;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+/**
+ * Receive the tiles of a pyramid, see {@link VipsImage#dzsave(TileSpec, TileConsumer)}
+ */
+@FunctionalInterface
+public interface TileConsumer {
+    /**
+     * @param level Pyramid level, numbered as in the layout (0 is the smallest level)
+     * @param x     Tile column
+     * @param y     Tile row
+     * @param data  Encoded tile
+     */
+    void accept(int level, int x, int y, byte[] data);
+}
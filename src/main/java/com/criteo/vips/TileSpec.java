@@ -0,0 +1,104 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import com.criteo.vips.enums.VipsForeignDzContainer;
+import com.criteo.vips.enums.VipsForeignDzDepth;
+import com.criteo.vips.enums.VipsForeignDzLayout;
+
+/**
+ * Describe the tile pyramid written by {@link VipsImage#dzsave(String, TileSpec)}.
+ */
+public class TileSpec {
+    private VipsForeignDzLayout layout = VipsForeignDzLayout.Dz;
+    private VipsForeignDzDepth depth = VipsForeignDzDepth.Onepixel;
+    private VipsForeignDzContainer container = VipsForeignDzContainer.Fs;
+    private int tileSize = 254;
+    private int overlap = 1;
+    private String suffix = ".jpeg";
+
+    public VipsForeignDzLayout getLayout() {
+        return layout;
+    }
+
+    public VipsForeignDzDepth getDepth() {
+        return depth;
+    }
+
+    public VipsForeignDzContainer getContainer() {
+        return container;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getOverlap() {
+        return overlap;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * @param layout DeepZoom, Zoomify, Google (XYZ) or IIIF directory layout
+     * @return this spec
+     */
+    public TileSpec setLayout(VipsForeignDzLayout layout) {
+        this.layout = layout;
+        return this;
+    }
+
+    /**
+     * @param depth Smallest pyramid level to write
+     * @return this spec
+     */
+    public TileSpec setDepth(VipsForeignDzDepth depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    /**
+     * @param container Write tiles to a directory or to a single zip file
+     * @return this spec
+     */
+    public TileSpec setContainer(VipsForeignDzContainer container) {
+        this.container = container;
+        return this;
+    }
+
+    /**
+     * @param tileSize Tile width and height, in pixels
+     * @param overlap  Overlap between neighbouring tiles, in pixels
+     * @return this spec
+     */
+    public TileSpec setTileSize(int tileSize, int overlap) {
+        this.tileSize = tileSize;
+        this.overlap = overlap;
+        return this;
+    }
+
+    /**
+     * @param suffix Tile file suffix with optional save options, eg. ".jpg[Q=85]" or ".webp"
+     * @return this spec
+     */
+    public TileSpec setSuffix(String suffix) {
+        this.suffix = suffix;
+        return this;
+    }
+}
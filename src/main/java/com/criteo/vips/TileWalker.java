@@ -0,0 +1,107 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import com.criteo.vips.enums.VipsForeignDzLayout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Read back the tiles written by dzsave in a directory, level by level and row by row
+ */
+class TileWalker {
+    // Capture groups are level, x, y in this order
+    private static final Pattern DZ_TILE = Pattern.compile(".*_files/(\\d+)/(\\d+)_(\\d+)\\.[^/]+$");
+    private static final Pattern GOOGLE_TILE = Pattern.compile(".*/(\\d+)/(?<y>\\d+)/(?<x>\\d+)\\.[^/]+$");
+    private static final Pattern ZOOMIFY_TILE = Pattern.compile(".*/TileGroup\\d+/(\\d+)-(\\d+)-(\\d+)\\.[^/]+$");
+
+    private static class Tile {
+        final Path path;
+        final int level;
+        final int x;
+        final int y;
+
+        Tile(Path path, int level, int x, int y) {
+            this.path = path;
+            this.level = level;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static void walk(Path root, VipsForeignDzLayout layout, Pattern pattern, TileConsumer consumer) throws IOException {
+        List<Tile> tiles;
+        try (Stream<Path> paths = Files.walk(root)) {
+            tiles = paths.filter(Files::isRegularFile)
+                    .map(path -> parse(pattern, layout, path))
+                    .filter(tile -> tile != null)
+                    .sorted(Comparator.<Tile>comparingInt(t -> t.level).thenComparingInt(t -> t.y).thenComparingInt(t -> t.x))
+                    .collect(Collectors.toList());
+        }
+        for (Tile tile : tiles) {
+            consumer.accept(tile.level, tile.x, tile.y, Files.readAllBytes(tile.path));
+            Files.delete(tile.path);
+        }
+    }
+
+    static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * @throws VipsException if tiles of this layout can't be walked, to be checked before dzsave
+     */
+    static Pattern getPattern(VipsForeignDzLayout layout) {
+        switch (layout) {
+            case Dz:
+                return DZ_TILE;
+            case Google:
+                return GOOGLE_TILE;
+            case Zoomify:
+                return ZOOMIFY_TILE;
+            default:
+                throw new VipsException("Tile callback doesn't support " + layout + " layout");
+        }
+    }
+
+    private static Tile parse(Pattern pattern, VipsForeignDzLayout layout, Path path) {
+        Matcher m = pattern.matcher(path.toString().replace('\\', '/'));
+        if (!m.matches())
+            return null;
+        int level = Integer.parseInt(m.group(1));
+        if (layout == VipsForeignDzLayout.Google)
+            return new Tile(path, level, Integer.parseInt(m.group("x")), Integer.parseInt(m.group("y")));
+        return new Tile(path, level, Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)));
+    }
+}
@@ -17,12 +17,38 @@
 package com.criteo.vips;
 
 import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
 import java.util.logging.Logger;
 
 public class Vips {
     private static final Logger LOGGER = Logger.getLogger("com.criteo.vips.Vips");
     private static final String SYSTEM_NAME = System.getProperty("os.name").toLowerCase();
 
+    /**
+     * System property overriding the directory where embedded libraries are extracted.
+     * Libraries are stored under their content hash, so the directory can be shared by
+     * several JVMs and reused across restarts.
+     */
+    public static final String LIBRARY_CACHE_DIR_PROPERTY = "jvips.library.cache.dir";
+
+    /**
+     * System property disabling the extraction cache when set to "false".
+     * Libraries are then copied to fresh temporary files deleted on exit.
+     */
+    public static final String LIBRARY_CACHE_PROPERTY = "jvips.library.cache";
+
+    /**
+     * System property pointing to a directory holding the native libraries.
+     * When set, libraries are loaded from there instead of being extracted from the jar,
+     * e.g. for GraalVM native executables shipped next to their libraries.
+     */
+    public static final String LIBRARY_PATH_PROPERTY = "jvips.library.path";
+
     private static final String[] LINUX_LIBRARIES = {
             "aom",
             "heif",
@@ -37,6 +63,7 @@ public class Vips {
             "webpdemux",
             "imagequant",
             "lcms2",
+            "cgif",
             "vips"
     };
 
@@ -54,6 +81,7 @@ public class Vips {
     };
 
     static {
+        long start = System.nanoTime();
         try {
             if (tryLoadLibrariesFromJar())
                 LOGGER.info("JVips dependencies have been loaded from jar");
@@ -62,6 +90,7 @@ public class Vips {
             LOGGER.info("Trying to load JVips");
             loadLibraryFromJar("JVips");
             init();
+            LOGGER.info("JVips loaded in " + (System.nanoTime() - start) / 1000000 + " ms");
         } catch (IOException e) {
             throw new RuntimeException("Can't load JVips library and/or dependencies");
         } catch (VipsException e) {
@@ -93,23 +122,150 @@ public class Vips {
 
     private static void loadLibraryFromJar(String name) throws IOException {
         String libName = System.mapLibraryName(name);
-        File temp;
-        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(libName)) {
-            if (in == null) {
-                LOGGER.warning("Could not load lib '" + libName + "' via classloader");
+        String libraryPath = System.getProperty(LIBRARY_PATH_PROPERTY);
+        long start = System.nanoTime();
+        File file;
+        if (libraryPath != null) {
+            file = new File(libraryPath, libName);
+            if (!file.isFile()) {
+                LOGGER.warning("Could not find lib '" + libName + "' in " + libraryPath);
                 return;
             }
-            byte[] buffer = new byte[1024];
-            int read;
-            temp = File.createTempFile(libName, "");
-            temp.deleteOnExit();
-            try (FileOutputStream fos = new FileOutputStream(temp)) {
-                while ((read = in.read(buffer)) != -1) {
-                    fos.write(buffer, 0, read);
+        } else {
+            byte[] content;
+            try (InputStream in = getClassLoader().getResourceAsStream(libName)) {
+                if (in == null) {
+                    LOGGER.warning("Could not load lib '" + libName + "' via classloader");
+                    return;
                 }
+                content = readFully(in);
+            }
+            file = extractLibrary(libName, content);
+        }
+        System.load(file.getAbsolutePath());
+        LOGGER.fine("Loaded '" + libName + "' from " + file + " in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    private static ClassLoader getClassLoader() {
+        // The context class loader may be unset, e.g. in GraalVM native images or JNI attached threads
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : Vips.class.getClassLoader();
+    }
+
+    private static File extractLibrary(String libName, byte[] content) throws IOException {
+        if ("false".equalsIgnoreCase(System.getProperty(LIBRARY_CACHE_PROPERTY)))
+            return extractToTempFile(libName, content);
+        try {
+            return extractToCache(getLibraryCacheDir(), libName, content);
+        } catch (IOException e) {
+            LOGGER.warning("Could not use library cache for '" + libName + "': " + e.getMessage());
+            return extractToTempFile(libName, content);
+        }
+    }
+
+    private static Path getLibraryCacheDir() {
+        String dir = System.getProperty(LIBRARY_CACHE_DIR_PROPERTY);
+        if (dir != null && !dir.isEmpty())
+            return Paths.get(dir);
+        return Paths.get(System.getProperty("java.io.tmpdir"), "jvips-" + System.getProperty("user.name", "cache"));
+    }
+
+    /**
+     * Extract library into cacheDir as "hash-libName".
+     * An existing file with the same name is reused once its content hash is checked.
+     * Otherwise, the library is written to a temporary file in cacheDir then atomically renamed,
+     * so concurrent JVMs never load a partially written file.
+     */
+    private static File extractToCache(Path cacheDir, String libName, byte[] content) throws IOException {
+        String hash = sha256(content);
+        Path target = cacheDir.resolve(hash + "-" + libName);
+        prepareCacheDir(cacheDir);
+        if (isCached(target, hash))
+            return target.toFile();
+        Path temp = Files.createTempFile(cacheDir, libName, ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Another JVM won the race, its file has the same content
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // On Windows, a loaded library can't be replaced: keep the existing one
+            if (!isCached(target, hash))
+                throw e;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target.toFile();
+    }
+
+    private static boolean isCached(Path target, String hash) throws IOException {
+        return Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)
+                && hash.equals(sha256(Files.readAllBytes(target)));
+    }
+
+    /**
+     * Create cacheDir readable by its owner only, and refuse a directory another user
+     * could write into, since the libraries it holds are loaded into this process.
+     */
+    private static void prepareCacheDir(Path cacheDir) throws IOException {
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.exists(cacheDir, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                if (posix)
+                    Files.createDirectories(cacheDir,
+                            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+                else
+                    Files.createDirectories(cacheDir);
+            } catch (FileAlreadyExistsException e) {
+                // Created concurrently, checked below
             }
         }
-        System.load(temp.getAbsolutePath());
+        if (!Files.isDirectory(cacheDir, LinkOption.NOFOLLOW_LINKS))
+            throw new IOException(cacheDir + " is not a directory");
+        if (!posix)
+            return;
+        String owner = Files.getOwner(cacheDir, LinkOption.NOFOLLOW_LINKS).getName();
+        if (!owner.equals(System.getProperty("user.name")))
+            throw new IOException(cacheDir + " is owned by " + owner);
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(cacheDir, LinkOption.NOFOLLOW_LINKS);
+        if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE))
+            throw new IOException(cacheDir + " is writable by other users");
+    }
+
+    private static File extractToTempFile(String libName, byte[] content) throws IOException {
+        File temp = File.createTempFile(libName, "");
+        temp.deleteOnExit();
+        try (FileOutputStream fos = new FileOutputStream(temp)) {
+            fos.write(content);
+        }
+        return temp;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(in.available());
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
     /**
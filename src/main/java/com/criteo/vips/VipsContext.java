@@ -16,6 +16,20 @@
 
 package com.criteo.vips;
 
+import com.criteo.vips.enums.VipsCompassDirection;
+import com.criteo.vips.enums.VipsImageFormat;
+import com.criteo.vips.enums.VipsInterpretation;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class VipsContext extends Vips {
     /**
      * Output leak information like GObject liveness
@@ -70,4 +84,73 @@ public class VipsContext extends Vips {
      * Shutdown vips context
      */
     public static native void shutdown();
+
+    /**
+     * Exercise decoders, encoders and common operations on tiny synthetic images,
+     * so the first requests don't pay for lazy codec initialization,
+     * operation class introspection and JIT compilation.
+     *
+     * @param spec Formats, image size, iterations and thread number to warm up
+     * @return Wall-clock warmup time in milliseconds per format
+     * @throws VipsException if a format can't be decoded or encoded
+     */
+    public static Map<VipsImageFormat, Long> warmup(WarmupSpec spec) throws VipsException {
+        Map<VipsImageFormat, Long> durations = new EnumMap<>(VipsImageFormat.class);
+        ExecutorService executor = Executors.newFixedThreadPool(spec.getThreads());
+
+        try {
+            for (VipsImageFormat format : spec.getFormats()) {
+                long start = System.nanoTime();
+                List<Future<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < spec.getThreads(); ++i) {
+                    futures.add(executor.submit(() -> {
+                        warmupFormat(format, spec);
+                        return null;
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof VipsException)
+                            throw (VipsException) e.getCause();
+                        throw new VipsException("Unable to warm up " + format + ": " + e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new VipsException("Warmup interrupted");
+                    }
+                }
+                durations.put(format, (System.nanoTime() - start) / 1000000);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return durations;
+    }
+
+    private static void warmupFormat(VipsImageFormat format, WarmupSpec spec) throws VipsException {
+        int width = spec.getWidth();
+        int height = spec.getHeight();
+        Dimension half = new Dimension(Math.max(1, width / 2), Math.max(1, height / 2));
+        Rectangle quarter = new Rectangle(0, 0, Math.max(1, width / 4), Math.max(1, height / 4));
+        PixelPacket white = new PixelPacket(255.0, 255.0, 255.0);
+
+        for (int i = 0; i < spec.getIterations(); ++i) {
+            byte[] encoded;
+            try (VipsImage image = VipsImage.black(width, height)) {
+                image.colourspace(VipsInterpretation.Srgb);
+                image.linear(new double[]{1.0, 1.0, 1.0}, new double[]{32.0, 128.0, 224.0}, true);
+                encoded = image.writeToArray(format, false);
+            }
+            try (VipsImage image = new VipsImage(encoded, encoded.length)) {
+                image.thumbnailImage(half, false);
+                image.resize(0.5, 0.5, spec.getKernel());
+                image.crop(new Rectangle(0, 0,
+                        Math.min(quarter.width, image.getWidth()),
+                        Math.min(quarter.height, image.getHeight())));
+                image.pad(half, white, VipsCompassDirection.Centre);
+                image.writeToArray(format, true);
+            }
+        }
+    }
 }
@@ -19,7 +19,17 @@ package com.criteo.vips;
 import com.criteo.vips.enums.*;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
 
 /**
  * Operation on image is not thread safe.
@@ -75,6 +85,130 @@ public class VipsImage extends Vips implements Image {
         newFromFile(filename);
     }
 
+    /**
+     * Load a single page or sub-IFD of a TIFF file, eg. a lower resolution level of a pyramid
+     *
+     * @param filename TIFF file name
+     * @param page     Page to load, from 0
+     * @param subifd   Sub-IFD of the page to load, -1 for the page itself
+     * @throws VipsException if error
+     */
+    public static VipsImage loadTIFF(String filename, int page, int subifd) throws VipsException {
+        return new VipsImage(filename + "[page=" + page + ",subifd=" + subifd + "]");
+    }
+
+    /**
+     * Load a single page or sub-IFD of a TIFF buffer, eg. a lower resolution level of a pyramid
+     *
+     * @param buffer Byte array containing a TIFF image
+     * @param length Buffer length
+     * @param page   Page to load, from 0
+     * @param subifd Sub-IFD of the page to load, -1 for the page itself
+     * @throws VipsException if error
+     */
+    public static VipsImage loadTIFF(byte[] buffer, int length, int page, int subifd) throws VipsException {
+        return new VipsImage(buffer, length, "page=" + page + ",subifd=" + subifd);
+    }
+
+    /**
+     * Load every frame of an animated GIF / WebP or multi-page file, stacked vertically
+     *
+     * @param filename name of the file to load
+     * @throws VipsException if error
+     * @see Image#getPageHeight()
+     */
+    public static VipsImage loadAnimated(String filename) throws VipsException {
+        return new VipsImage(filename + "[n=-1]");
+    }
+
+    /**
+     * Load every frame of an animated GIF / WebP or multi-page buffer, stacked vertically
+     *
+     * @param buffer Byte array containing an encoded image
+     * @param length Buffer length
+     * @throws VipsException if error
+     * @see Image#getPageHeight()
+     */
+    public static VipsImage loadAnimated(byte[] buffer, int length) throws VipsException {
+        return new VipsImage(buffer, length, "n=-1");
+    }
+
+    /**
+     * Load a single frame of an animated GIF / WebP or multi-page file, without
+     * decoding the other ones
+     *
+     * @param filename name of the file to load
+     * @param page     Page to load, from 0
+     * @throws VipsException if error
+     */
+    public static VipsImage loadPage(String filename, int page) throws VipsException {
+        return new VipsImage(filename + "[page=" + page + "]");
+    }
+
+    /**
+     * Load a single frame of an animated GIF / WebP or multi-page buffer, without
+     * decoding the other ones
+     *
+     * @param buffer Byte array containing an encoded image
+     * @param length Buffer length
+     * @param page   Page to load, from 0
+     * @throws VipsException if error
+     */
+    public static VipsImage loadPage(byte[] buffer, int length, int page) throws VipsException {
+        return new VipsImage(buffer, length, "page=" + page);
+    }
+
+    /**
+     * Iterate over every step-th frame of a multi-page file. Each frame is only
+     * decoded when returned by next(), and must be released by the caller.
+     *
+     * @param filename name of the file to load
+     * @param step     Distance between two returned pages, 1 for every page
+     * @throws VipsException if error
+     */
+    public static Iterator<VipsImage> frames(String filename, int step) throws VipsException {
+        try (VipsImage header = new VipsImage(filename)) {
+            return frames(header.getNbFrame(), step, page -> loadPage(filename, page));
+        }
+    }
+
+    /**
+     * Iterate over every step-th frame of a multi-page buffer. Each frame is only
+     * decoded when returned by next(), and must be released by the caller.
+     *
+     * @param buffer Byte array containing an encoded image
+     * @param length Buffer length
+     * @param step   Distance between two returned pages, 1 for every page
+     * @throws VipsException if error
+     */
+    public static Iterator<VipsImage> frames(byte[] buffer, int length, int step) throws VipsException {
+        try (VipsImage header = new VipsImage(buffer, length)) {
+            return frames(header.getNbFrame(), step, page -> loadPage(buffer, length, page));
+        }
+    }
+
+    private static Iterator<VipsImage> frames(int nbFrame, int step, IntFunction<VipsImage> loader) {
+        if (step < 1)
+            throw new VipsException("Step must be positive");
+        return new Iterator<VipsImage>() {
+            private int page = 0;
+
+            @Override
+            public boolean hasNext() {
+                return page < nbFrame;
+            }
+
+            @Override
+            public VipsImage next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                VipsImage frame = loader.apply(page);
+                page += step;
+                return frame;
+            }
+        };
+    }
+
     private VipsImage() {
         // you must call a native method before using this object
     }
@@ -156,6 +290,10 @@ public class VipsImage extends Vips implements Image {
         thumbnailImageNative(width, height, scale);
     }
 
+    public void thumbnailImage(int width, int height, VipsInteresting crop) throws VipsException {
+        thumbnailImageCropNative(width, height, crop.getValue());
+    }
+
     public static VipsImage thumbnail(String filename, Dimension dimension, boolean scale) throws VipsException {
         return thumbnailNative(filename, dimension.width, dimension.height, scale);
     }
@@ -173,6 +311,46 @@ public class VipsImage extends Vips implements Image {
         return thumbnailNative(filename, width, height, scale);
     }
 
+    /**
+     * Make a thumbnail from a file filling the target dimension, then crop what overflows
+     *
+     * @param filename name of the file to load
+     * @param width  Target width
+     * @param height Target height
+     * @param crop   Strategy to find the area to keep
+     * @throws VipsException if error
+     */
+    public static VipsImage thumbnail(String filename, int width, int height, VipsInteresting crop) throws VipsException {
+        return thumbnailCropNative(filename, width, height, crop.getValue());
+    }
+
+    /**
+     * Make a preview fitting in a maxSize x maxSize box, decoding the embedded
+     * thumbnail (JPEG EXIF or HEIF) when it is at least maxSize large, and
+     * falling back to a shrink-on-load thumbnail otherwise
+     *
+     * @param filename name of the file to load
+     * @param maxSize  Target size of the longest side
+     * @throws VipsException if error
+     */
+    public static VipsImage preview(String filename, int maxSize) throws VipsException {
+        return previewNative(filename, maxSize);
+    }
+
+    /**
+     * Make a preview fitting in a maxSize x maxSize box, decoding the embedded
+     * thumbnail (JPEG EXIF or HEIF) when it is at least maxSize large, and
+     * falling back to a shrink-on-load thumbnail otherwise
+     *
+     * @param buffer  Byte array containing an encoded image
+     * @param length  Buffer length
+     * @param maxSize Target size of the longest side
+     * @throws VipsException if error
+     */
+    public static VipsImage preview(byte[] buffer, int length, int maxSize) throws VipsException {
+        return previewNative(buffer, length, maxSize);
+    }
+
     /**
      * @deprecated Use {@link #thumbnailImage(Dimension, boolean)} instead.
      */
@@ -193,6 +371,14 @@ public class VipsImage extends Vips implements Image {
 
     private static native VipsImage thumbnailNative(String filename, int width, int height, boolean scale) throws VipsException;
 
+    private native void thumbnailImageCropNative(int width, int height, int crop) throws VipsException;
+
+    private static native VipsImage thumbnailCropNative(String filename, int width, int height, int crop) throws VipsException;
+
+    private static native VipsImage previewNative(String filename, int maxSize) throws VipsException;
+
+    private static native VipsImage previewNative(byte[] buffer, int length, int maxSize) throws VipsException;
+
     public void resize(double hscale, double vscale, VipsKernel kernel) throws VipsException {
         resizeNative(hscale, vscale, kernel.getValue());
     }
@@ -207,6 +393,51 @@ public class VipsImage extends Vips implements Image {
 
     private native void max1Native(Max1Result r) throws VipsException;
 
+    public native double[] stats() throws VipsException;
+
+    public void histogram(int band, int bins, long[] counts) throws VipsException {
+        int bands = band < 0 ? getBands() : 1;
+        if (bins <= 0 || counts.length < (long) bands * bins)
+            throw new VipsException("histogram requires " + bands + " * " + bins + " counts");
+        histogramNative(band, bins, counts);
+    }
+
+    private native void histogramNative(int band, int bins, long[] counts) throws VipsException;
+
+    public WeightedPixelPacket[] dominantColors(int k) throws VipsException {
+        if (k < 1)
+            throw new VipsException("dominantColors requires at least one colour");
+        return toWeightedPixelPackets(paletteNative(k, true));
+    }
+
+    public WeightedPixelPacket[] palette(int n) throws VipsException {
+        if (n < 1)
+            throw new VipsException("palette requires at least one colour");
+        return toWeightedPixelPackets(paletteNative(n, false));
+    }
+
+    private static WeightedPixelPacket[] toWeightedPixelPackets(double[] values) {
+        WeightedPixelPacket[] colors = new WeightedPixelPacket[values.length / 4];
+        for (int i = 0; i < colors.length; ++i)
+            colors[i] = new WeightedPixelPacket(values[4 * i], values[4 * i + 1], values[4 * i + 2], values[4 * i + 3]);
+        return colors;
+    }
+
+    private native double[] paletteNative(int n, boolean merge) throws VipsException;
+
+    public long perceptualHash(HashType type) throws VipsException {
+        return perceptualHashNative(type.getValue());
+    }
+
+    private native long perceptualHashNative(int type) throws VipsException;
+
+    public ContentAnalysis analyzeContent() throws VipsException {
+        double[] values = analyzeContentNative(ContentAnalysis.MAX_COLORS);
+        return new ContentAnalysis((int) values[0], values[1], values[2]);
+    }
+
+    private native double[] analyzeContentNative(int maxColors) throws VipsException;
+
     public void pad(Dimension dimension, PixelPacket background, VipsCompassDirection gravity) throws VipsException {
         padNative(dimension.width, dimension.height, background.getComponents(), gravity.getValue());
     }
@@ -219,6 +450,12 @@ public class VipsImage extends Vips implements Image {
 
     private native void cropNative(int left, int top, int width, int height) throws VipsException;
 
+    public void smartcrop(int width, int height, VipsInteresting interesting) throws VipsException {
+        smartcropNative(width, height, interesting.getValue());
+    }
+
+    private native void smartcropNative(int width, int height, int interesting) throws VipsException;
+
     public Rectangle findTrim(double threshold, PixelPacket background) throws VipsException {
         int[] ret = findTrimNative(threshold, background.getComponents());
         return new Rectangle(ret[0], ret[1], ret[2], ret[3]);
@@ -228,6 +465,22 @@ public class VipsImage extends Vips implements Image {
 
     public native void compose(Image sub) throws VipsException;
 
+    public void composite(List<Image> layers, List<VipsBlendMode> modes, int[] x, int[] y, boolean premultiplied) throws VipsException {
+        if (layers == null || modes == null || x == null || y == null)
+            throw new VipsException("Layers, modes and positions must not be null");
+        int n = layers.size();
+        if (modes.size() != n || x.length != n || y.length != n)
+            throw new VipsException("Layers, modes and positions must have the same length");
+        if (layers.contains(null) || modes.contains(null))
+            throw new VipsException("Layers and modes must not contain null");
+        int[] modeValues = new int[n];
+        for (int i = 0; i < n; ++i)
+            modeValues[i] = modes.get(i).getValue();
+        compositeNative(layers.toArray(new Image[n]), modeValues, x, y, premultiplied);
+    }
+
+    private native void compositeNative(Image[] layers, int[] modes, int[] x, int[] y, boolean premultiplied) throws VipsException;
+
     public native void insert(Image sub, int x, int y) throws VipsException;
 
     public void flatten(PixelPacket background) throws VipsException {
@@ -245,6 +498,12 @@ public class VipsImage extends Vips implements Image {
         return writeToArrayNative(imageFormat.getFileExtension(), quality, strip);
     }
 
+    public byte[] writeToArray(VipsImageFormat imageFormat, int quality, boolean strip, boolean optimizeBands) throws VipsException {
+        if (optimizeBands)
+            optimizeBands();
+        return writeToArray(imageFormat, quality, strip);
+    }
+
     private native byte[] writeToArrayNative(String extension, int quality, boolean strip) throws VipsException;
 
     public byte[] writePNGToArray(int compression, boolean palette, int colors, boolean strip) throws VipsException {
@@ -253,17 +512,44 @@ public class VipsImage extends Vips implements Image {
 
     private native byte[] writePNGToArrayNative(int compression, boolean palette, int colors, boolean strip) throws VipsException;
 
+    public byte[] writeGIFToArray(double dither, int effort, int bitdepth, double interframeMaxError, boolean strip) throws VipsException {
+        return writeGIFToArrayNative(dither, effort, bitdepth, interframeMaxError, strip);
+    }
+
+    private native byte[] writeGIFToArrayNative(double dither, int effort, int bitdepth, double interframeMaxError, boolean strip) throws VipsException;
+
     public byte[] writeJPEGToArray(int quality, boolean strip) throws VipsException {
         return writeJPEGToArrayNative(quality, strip);
     }
 
     private native byte[] writeJPEGToArrayNative(int quality, boolean strip) throws VipsException;
 
+    public byte[] writeTIFFToArray(TiffSpec spec) throws VipsException {
+        return writeTIFFNative(null, spec.getCompression().getValue(), spec.getPredictor().getValue(),
+                spec.getQuality(), spec.isTile(), spec.getTileWidth(), spec.getTileHeight(), spec.isPyramid(),
+                spec.isSubifd(), spec.isBigtiff(), spec.isStrip());
+    }
+
+    public void writeTIFFToFile(String name, TiffSpec spec) throws VipsException {
+        writeTIFFNative(name, spec.getCompression().getValue(), spec.getPredictor().getValue(),
+                spec.getQuality(), spec.isTile(), spec.getTileWidth(), spec.getTileHeight(), spec.isPyramid(),
+                spec.isSubifd(), spec.isBigtiff(), spec.isStrip());
+    }
+
+    // Write to name if not null, otherwise return the encoded buffer
+    private native byte[] writeTIFFNative(String name, int compression, int predictor, int Q, boolean tile,
+                                          int tileWidth, int tileHeight, boolean pyramid, boolean subifd,
+                                          boolean bigtiff, boolean strip) throws VipsException;
+
     public byte[] writeAVIFToArray(int Q, boolean lossless, int speed) throws VipsException {
-        return writeAVIFToArrayNative(Q, lossless, speed);
+        return writeAVIFToArrayNative(Q, lossless, speed, false);
+    }
+
+    public byte[] writeAVIFToArray(int Q, boolean lossless, int speed, boolean strip) throws VipsException {
+        return writeAVIFToArrayNative(Q, lossless, speed, strip);
     }
 
-    private native byte[] writeAVIFToArrayNative(int Q, boolean lossless, int speed) throws VipsException;
+    private native byte[] writeAVIFToArrayNative(int Q, boolean lossless, int speed, boolean strip) throws VipsException;
 
     public byte[] writeWEBPToArray(int Q, boolean lossless, boolean strip) throws VipsException {
         return writeWEBPToArrayNative(Q, lossless, strip);
@@ -273,6 +559,35 @@ public class VipsImage extends Vips implements Image {
 
     public native void writeToFile(String name) throws VipsException;;
 
+    public void dzsave(String basename, TileSpec spec) throws VipsException {
+        dzsaveNative(basename, spec.getLayout().getValue(), spec.getDepth().getValue(),
+                spec.getContainer().getValue(), spec.getTileSize(), spec.getOverlap(), spec.getSuffix());
+    }
+
+    public void dzsave(TileSpec spec, TileConsumer consumer) throws VipsException {
+        Pattern pattern = TileWalker.getPattern(spec.getLayout());
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("jvips-tiles");
+            dzsaveNative(dir.resolve("tiles").toString(), spec.getLayout().getValue(), spec.getDepth().getValue(),
+                    VipsForeignDzContainer.Fs.getValue(), spec.getTileSize(), spec.getOverlap(), spec.getSuffix());
+            TileWalker.walk(dir, spec.getLayout(), pattern, consumer);
+        } catch (IOException e) {
+            throw new VipsException("Unable to read tiles: " + e.getMessage());
+        } finally {
+            if (dir != null) {
+                try {
+                    TileWalker.delete(dir);
+                } catch (IOException | UncheckedIOException e) {
+                    // Temporary files are left behind
+                }
+            }
+        }
+    }
+
+    private native void dzsaveNative(String basename, int layout, int depth, int container, int tileSize,
+                                     int overlap, String suffix) throws VipsException;
+
     public native int getWidth();
 
     public native int getHeight();
@@ -324,8 +639,56 @@ public class VipsImage extends Vips implements Image {
 
     public native void convertTosRGB() throws VipsException;
 
+    public native void copyMemory() throws VipsException;
+
+    public native boolean optimizeBands() throws VipsException;
+
+    public EncodeResult encodeForTarget(VipsImageFormat format, TargetSpec target) throws VipsException {
+        return new TargetEncoder(this, format, target).run();
+    }
+
+    public void iccImport(VipsIntent intent) throws VipsException {
+        iccImportNative(null, null, intent.getValue());
+    }
+
+    public void iccImport(IccProfile inputProfile, VipsIntent intent) throws VipsException {
+        iccImportNative(inputProfile.getBuiltinName(), inputProfile.getData(), intent.getValue());
+    }
+
+    private native void iccImportNative(String inputProfile, byte[] inputProfileData, int intent) throws VipsException;
+
+    public void iccExport(IccProfile outputProfile, VipsIntent intent) throws VipsException {
+        iccExportNative(outputProfile.getName(), intent.getValue());
+    }
+
+    private native void iccExportNative(String outputProfile, int intent) throws VipsException;
+
+    public void iccTransform(IccProfile outputProfile, VipsIntent intent) throws VipsException {
+        iccTransformNative(outputProfile.getName(), null, null, intent.getValue());
+    }
+
+    public void iccTransform(IccProfile outputProfile, IccProfile inputProfile, VipsIntent intent) throws VipsException {
+        iccTransformNative(outputProfile.getName(), inputProfile.getBuiltinName(), inputProfile.getData(), intent.getValue());
+    }
+
+    private native void iccTransformNative(String outputProfile, String inputProfile, byte[] inputProfileData, int intent) throws VipsException;
+
     public native int getNbFrame();
 
+    public native int getPageHeight();
+
+    public native int[] getDelays();
+
+    public native int getLoop();
+
+    public void setAnimation(int[] delays, int loop) throws VipsException {
+        if (delays.length != getNbFrame())
+            throw new VipsException("Delays must be given for each of the " + getNbFrame() + " frames");
+        setAnimationNative(delays, loop);
+    }
+
+    private native void setAnimationNative(int[] delays, int loop) throws VipsException;
+
     public native void autorot() throws VipsException;
 
     public native void removeAutorotAngle();
@@ -348,4 +711,50 @@ public class VipsImage extends Vips implements Image {
     }
 
     public static native VipsImage joinNative(VipsImage in1, VipsImage in2, int direction) throws VipsException;
+
+    /**
+     * Lay out images in a grid of across columns, in a single operation
+     *
+     * @param images     Images in row-major order
+     * @param across     Number of images per row
+     * @param shim       Space between images, in pixels
+     * @param background Colour of the space between and around images
+     * @param halign     Horizontal alignment of images in their cell
+     * @param valign     Vertical alignment of images in their cell
+     * @throws VipsException if error
+     */
+    public static VipsImage arrayJoin(List<Image> images, int across, int shim, PixelPacket background,
+                                      VipsAlign halign, VipsAlign valign) throws VipsException {
+        if (images.isEmpty() || images.contains(null))
+            throw new VipsException("Images must be a non empty list without null");
+        return arrayJoinNative(images.toArray(new Image[0]), across, shim, background.getComponents(),
+                halign.getValue(), valign.getValue());
+    }
+
+    private static native VipsImage arrayJoinNative(Image[] images, int across, int shim, double[] background,
+                                                    int halign, int valign) throws VipsException;
+
+    public List<VipsImage> extractTiles(List<Rectangle> areas) throws VipsException {
+        return Arrays.asList(extractTilesNative(toAreaArray(areas)));
+    }
+
+    public List<byte[]> extractTiles(List<Rectangle> areas, VipsImageFormat format, int quality, boolean strip) throws VipsException {
+        return Arrays.asList(extractEncodedTilesNative(toAreaArray(areas), format.getFileExtension(), quality, strip));
+    }
+
+    private static int[] toAreaArray(List<Rectangle> areas) {
+        int[] values = new int[areas.size() * 4];
+        for (int i = 0; i < areas.size(); ++i) {
+            Rectangle area = areas.get(i);
+            values[4 * i] = area.x;
+            values[4 * i + 1] = area.y;
+            values[4 * i + 2] = area.width;
+            values[4 * i + 3] = area.height;
+        }
+        return values;
+    }
+
+    private native VipsImage[] extractTilesNative(int[] areas) throws VipsException;
+
+    private native byte[][] extractEncodedTilesNative(int[] areas, String extension, int quality, boolean strip) throws VipsException;
 }
@@ -0,0 +1,110 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import com.criteo.vips.enums.VipsImageFormat;
+import com.criteo.vips.enums.VipsKernel;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Describe the work done by {@link VipsContext#warmup(WarmupSpec)}.
+ */
+public class WarmupSpec {
+    private final Set<VipsImageFormat> formats;
+    private int width = 64;
+    private int height = 64;
+    private int iterations = 10;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private VipsKernel kernel = VipsKernel.Lanczos3;
+
+    /**
+     * @param formats Formats to decode and encode, JPG, PNG, WEBP and AVIF if empty
+     */
+    public WarmupSpec(VipsImageFormat... formats) {
+        if (formats.length == 0)
+            this.formats = EnumSet.of(VipsImageFormat.JPG, VipsImageFormat.PNG, VipsImageFormat.WEBP,
+                    VipsImageFormat.AVIF);
+        else
+            this.formats = EnumSet.copyOf(Arrays.asList(formats));
+    }
+
+    public Set<VipsImageFormat> getFormats() {
+        return formats;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public VipsKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * @param width  Synthetic image width
+     * @param height Synthetic image height
+     * @return this spec
+     */
+    public WarmupSpec setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * @param iterations Number of decode/transform/encode rounds per thread and format
+     * @return this spec
+     */
+    public WarmupSpec setIterations(int iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * @param threads Number of threads running the warmup concurrently,
+     *                should match the size of the worker pool
+     * @return this spec
+     */
+    public WarmupSpec setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param kernel Resampling kernel used by the resize step
+     * @return this spec
+     */
+    public WarmupSpec setKernel(VipsKernel kernel) {
+        this.kernel = kernel;
+        return this;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+/**
+ * sRGB colour with the fraction of the image pixels it represents
+ */
+public class WeightedPixelPacket extends PixelPacket {
+    private final double weight;
+
+    public WeightedPixelPacket(double r, double g, double b, double weight) {
+        super(r, g, b);
+        this.weight = weight;
+    }
+
+    /**
+     * @return fraction of the non transparent pixels having this colour, between 0 and 1
+     */
+    public double getWeight() {
+        return weight;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && Double.compare(weight, ((WeightedPixelPacket) o).weight) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Double.hashCode(weight);
+    }
+}
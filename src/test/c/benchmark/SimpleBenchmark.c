@@ -15,23 +15,42 @@
 */
 
 #include <stdio.h>
-#include <time.h>
+#include <stdlib.h>
 #include <vips/vips.h>
 #include <gobject/gobject.h>
 
+typedef struct
+{
+    gchar *contents;
+    gsize length;
+    int iterations;
+    int failed;
+} BenchmarkTask;
+
+/* Same pipeline as the Java SimpleBenchmark: decode, thumbnail, crop, pad
+ * and encode with the libvips calls made by JVips, so the difference of
+ * their timings is the JNI wrapper overhead.
+ */
 int benchmark(void *buf, size_t len)
 {
     VipsImage *image;
     VipsImage *x;
+    double background[4] = { 255.0, 255.0, 255.0, 255.0 };
+    VipsArrayDouble *bg_pixel;
 
     void *new_buf;
     size_t new_len;
 
-    if (vips_thumbnail_buffer(buf, len, &image, 512, "height", 512, NULL))
+    if ((image = vips_image_new_from_buffer(buf, len, NULL, NULL)) == NULL)
+        return -1;
+
+    if (vips_thumbnail_image(image, &x, 512, "height", 512, "size", VIPS_SIZE_BOTH, NULL))
     {
         g_object_unref(image);
         return -1;
     }
+    g_object_unref(image);
+    image = x;
 
     if (vips_crop(image, &x, 128, 128, 128, 128, NULL))
     {
@@ -41,16 +60,20 @@ int benchmark(void *buf, size_t len)
     g_object_unref(image);
     image = x;
 
-    if (vips_gravity(image, &x, VIPS_COMPASS_DIRECTION_CENTRE, 256, 256, NULL))
+    bg_pixel = vips_array_double_new(background, VIPS_MIN(image->Bands, 4));
+    if (vips_gravity(image, &x, VIPS_COMPASS_DIRECTION_CENTRE, 256, 256,
+                     "extend", VIPS_EXTEND_BACKGROUND, "background", bg_pixel, NULL))
     {
+        vips_area_unref((VipsArea *) bg_pixel);
         g_object_unref(image);
         return -1;
     }
+    vips_area_unref((VipsArea *) bg_pixel);
     g_object_unref(image);
     image = x;
 
     if (vips_image_write_to_buffer(image, ".jpg", 
-        &new_buf, &new_len, NULL)) {
+        &new_buf, &new_len, "strip", FALSE, "Q", 80, NULL)) {
         g_object_unref(image);
         return -1;
     }
@@ -61,16 +84,38 @@ int benchmark(void *buf, size_t len)
     return 0;
 }
 
+static gpointer run_task(gpointer data)
+{
+    BenchmarkTask *task = (BenchmarkTask *) data;
+
+    for (int i = 0; i < task->iterations; i++)
+        if (benchmark(task->contents, task->length))
+        {
+            task->failed = 1;
+            break;
+        }
+    return NULL;
+}
+
+/* Usage: SimpleBenchmark <image> [iterations] [threads]
+ */
 int main(int argc, char **argv)
 {
-    const int N = 100;
-    float start, stop;
+    int N = argc > 2 ? atoi(argv[2]) : 100;
+    int threads = argc > 3 ? atoi(argv[3]) : 1;
+    gint64 start, stop;
     gchar *contents;
     gsize length;
+    BenchmarkTask *tasks;
+    GThread **workers;
+    int failed = 0;
 
     if (VIPS_INIT(argv[0]))
         vips_error_exit(NULL);
 
+    if (argc < 2 || N <= 0 || threads <= 0)
+        vips_error_exit("usage: %s <image> [iterations] [threads]", argv[0]);
+
     /* Turn off the libvips cache for this benchmark, or some operations
      * may get reused.
      */
@@ -79,19 +124,38 @@ int main(int argc, char **argv)
     if (!g_file_get_contents(argv[1], &contents, &length, NULL))
         vips_error_exit(NULL);
 
-    start = (float) clock() / CLOCKS_PER_SEC;
+    tasks = g_new0(BenchmarkTask, threads);
+    workers = g_new0(GThread *, threads);
+    for (int t = 0; t < threads; t++)
+    {
+        tasks[t].contents = contents;
+        tasks[t].length = length;
+        tasks[t].iterations = N / threads + (t < N % threads ? 1 : 0);
+    }
 
-    for (int i = 0; i < N; i++)
-        if (benchmark(contents, length))
-            vips_error_exit(NULL);
+    start = g_get_monotonic_time();
 
-    stop = (float) clock() / CLOCKS_PER_SEC;
+    for (int t = 0; t < threads; t++)
+        workers[t] = g_thread_new("benchmark", run_task, &tasks[t]);
+    for (int t = 0; t < threads; t++)
+    {
+        g_thread_join(workers[t]);
+        failed |= tasks[t].failed;
+    }
 
-    double total = (stop - start) * 1000; // in ms
-    double op_time = total / N;
-    printf("SimpleBenchmark ran %d iterations in %.2lf ms (%.2lf ms/op)\n", N, total, op_time);
+    stop = g_get_monotonic_time();
 
+    if (failed)
+        vips_error_exit(NULL);
+
+    double total = (stop - start) / 1000.0; // in ms
+    // Average time per operation seen by each thread, like JMH AverageTime mode
+    double op_time = total * threads / N;
+    printf("SimpleBenchmark ran %d iterations on %d threads in %.2lf ms (%.2lf ms/op)\n", N, threads, total, op_time);
+
+    g_free(workers);
+    g_free(tasks);
     g_free(contents);
 
     return 0;
-}
\ No newline at end of file
+}
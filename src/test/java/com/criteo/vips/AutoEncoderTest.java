@@ -0,0 +1,94 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import com.criteo.vips.enums.VipsImageFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AutoEncoderTest {
+    @Test
+    public void TestShouldAnalyzeContent() throws IOException {
+        byte[] white = VipsTestUtils.getByteArray("white.png");
+        byte[] photo = VipsTestUtils.getByteArray("in_vips.jpg");
+        try (VipsImage graphic = new VipsImage(white, white.length);
+             VipsImage img = new VipsImage(photo, photo.length)) {
+            ContentAnalysis graphicContent = graphic.analyzeContent();
+            Assert.assertEquals(1, graphicContent.getColors());
+            Assert.assertEquals(0.0, graphicContent.getEdgeDensity(), 0);
+            ContentAnalysis photoContent = img.analyzeContent();
+            Assert.assertFalse(photoContent.hasFewColors());
+            Assert.assertFalse(photoContent.usesAlpha());
+        }
+    }
+
+    @Test
+    public void TestShouldEncodeFewColorsLosslessly() throws IOException {
+        byte[] buffer = VipsTestUtils.getByteArray("white.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.length)) {
+            EncodeResult result = new AutoEncoder().encode(img);
+            Assert.assertEquals(VipsImageFormat.PNG, result.getFormat());
+            Assert.assertEquals(-1, result.getQuality());
+        }
+    }
+
+    @Test
+    public void TestShouldEncodePhotoLossily() throws IOException {
+        byte[] buffer = VipsTestUtils.getByteArray("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.length)) {
+            EncodeResult result = new AutoEncoder(VipsImageFormat.JPG, VipsImageFormat.PNG).encode(img);
+            Assert.assertEquals(VipsImageFormat.JPG, result.getFormat());
+            Assert.assertTrue(result.getQuality() >= 70 && result.getQuality() <= 85);
+        }
+    }
+
+    @Test
+    public void TestShouldKeepSmallestCandidate() throws IOException {
+        byte[] buffer = VipsTestUtils.getByteArray("in_vips.jpg");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (VipsImage img = new VipsImage(buffer, buffer.length)) {
+            EncodeResult result = new AutoEncoder().setCandidates(2, executor).encode(img);
+            Assert.assertEquals(2, result.getIterations());
+            int jpg = img.writeJPEGToArray(result.getQuality(), true).length;
+            int webp = img.writeWEBPToArray(result.getQuality(), false, true).length;
+            Assert.assertEquals(Math.min(jpg, webp), result.getData().length);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void TestShouldNotRankJpgForTranslucentContent() {
+        List<AutoEncoder.Candidate> ranked = new AutoEncoder().rank(new ContentAnalysis(1000, 0.5, 0.1));
+        Assert.assertFalse(ranked.isEmpty());
+        for (AutoEncoder.Candidate candidate : ranked)
+            Assert.assertNotEquals(VipsImageFormat.JPG, candidate.format);
+    }
+
+    @Test
+    public void TestShouldMapEdgeDensityToQualityRange() {
+        AutoEncoder encoder = new AutoEncoder().setQualityRange(70, 90);
+        Assert.assertEquals(90, encoder.rank(new ContentAnalysis(1000, 0, 0)).get(0).quality);
+        Assert.assertEquals(80, encoder.rank(new ContentAnalysis(1000, 0, AutoEncoder.DETAILED_EDGE_DENSITY / 2)).get(0).quality);
+        Assert.assertEquals(70, encoder.rank(new ContentAnalysis(1000, 0, 1.0)).get(0).quality);
+    }
+}
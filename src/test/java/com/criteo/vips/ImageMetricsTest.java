@@ -0,0 +1,65 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips;
+
+import com.criteo.vips.enums.VipsImageFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class ImageMetricsTest {
+    private static final double Delta = 0.0001;
+
+    @Test
+    public void TestIdenticalImages() throws IOException {
+        byte[] buffer = VipsTestUtils.getByteArray("in_vips.jpg");
+        try (VipsImage a = new VipsImage(buffer, buffer.length);
+             VipsImage b = new VipsImage(buffer, buffer.length)) {
+            Assert.assertEquals(Double.POSITIVE_INFINITY, ImageMetrics.psnr(a, b), 0);
+            Assert.assertEquals(1.0, ImageMetrics.ssim(a, b), Delta);
+        }
+    }
+
+    @Test
+    public void TestReencodedImage() throws IOException {
+        byte[] buffer = VipsTestUtils.getByteArray("in_vips.jpg");
+        try (VipsImage a = new VipsImage(buffer, buffer.length)) {
+            byte[] low = a.writeToArray(VipsImageFormat.JPG, 10, true);
+            byte[] high = a.writeToArray(VipsImageFormat.JPG, 95, true);
+            try (VipsImage b = new VipsImage(low, low.length);
+                 VipsImage c = new VipsImage(high, high.length)) {
+                double psnr = ImageMetrics.psnr(a, b);
+                double ssim = ImageMetrics.ssim(a, b);
+                Assert.assertTrue(psnr > 15 && psnr < 40);
+                Assert.assertTrue(ssim > 0 && ssim < 1);
+                Assert.assertTrue(ImageMetrics.psnr(a, c) > psnr);
+                Assert.assertTrue(ImageMetrics.ssim(a, c) > ssim);
+            }
+        }
+    }
+
+    @Test(expected = VipsException.class)
+    public void TestShouldThrowOnDifferentDimensions() throws IOException {
+        byte[] buffer = VipsTestUtils.getByteArray("in_vips.jpg");
+        try (VipsImage a = new VipsImage(buffer, buffer.length);
+             VipsImage b = new VipsImage(buffer, buffer.length)) {
+            b.thumbnailImage(a.getWidth() / 2, a.getHeight() / 2, false);
+            ImageMetrics.psnr(a, b);
+        }
+    }
+}
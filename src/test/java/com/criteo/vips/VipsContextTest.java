@@ -16,9 +16,12 @@
 
 package com.criteo.vips;
 
+import com.criteo.vips.enums.VipsImageFormat;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Map;
+
 public class VipsContextTest {
     @Test
     public void TestSetLeak() {
@@ -42,4 +45,15 @@ public class VipsContextTest {
         VipsContext.setMaxCacheMem(1024);
         Assert.assertEquals(1024, VipsContext.getMaxCacheMem());
     }
+
+    @Test
+    public void TestWarmup() {
+        WarmupSpec spec = new WarmupSpec(VipsImageFormat.JPG, VipsImageFormat.PNG)
+                .setIterations(2)
+                .setThreads(2);
+        Map<VipsImageFormat, Long> durations = VipsContext.warmup(spec);
+        Assert.assertEquals(spec.getFormats(), durations.keySet());
+        for (long duration : durations.values())
+            Assert.assertTrue(duration >= 0);
+    }
 }
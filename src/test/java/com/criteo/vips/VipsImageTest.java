@@ -34,11 +34,14 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
 
@@ -185,6 +188,48 @@ public class VipsImageTest {
         }
     }
 
+    @Test
+    public void TestShouldComputeStatsPerBand() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("white.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            double[] stats = img.stats();
+            double pixels = img.getWidth() * img.getHeight();
+            assertEquals(img.getBands() * 5, stats.length);
+            for (int b = 0; b < img.getBands(); ++b) {
+                assertEquals(255.0, stats[5 * b], Delta);
+                assertEquals(255.0, stats[5 * b + 1], Delta);
+                assertEquals(255.0, stats[5 * b + 2], Delta);
+                assertEquals(0.0, stats[5 * b + 3], Delta);
+                assertEquals(255.0 * pixels, stats[5 * b + 4], Delta);
+            }
+        }
+    }
+
+    @Test
+    public void TestShouldCopyHistogramCounts() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        int bins = 16;
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            long[] counts = new long[img.getBands() * bins];
+            img.histogram(-1, bins, counts);
+            long pixels = (long) img.getWidth() * img.getHeight();
+            for (int b = 0; b < img.getBands(); ++b) {
+                long total = 0;
+                for (int i = 0; i < bins; ++i)
+                    total += counts[b * bins + i];
+                assertEquals(pixels, total);
+            }
+        }
+    }
+
+    @Test(expected = VipsException.class)
+    public void TestHistogramShouldThrowOnTooSmallCounts() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            img.histogram(-1, 16, new long[16]);
+        }
+    }
+
     @Ignore
     @Theory
     public void TestHistFindNdim2(@FromDataPoints("filenames") String filename) throws IOException, VipsException {
@@ -352,6 +397,29 @@ public class VipsImageTest {
         }
     }
 
+    @Test
+    public void TestShouldRenderThumbnailImageWithCrop() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        int expectedWidth = 128;
+        int expectedHeight = 256;
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            img.thumbnailImage(expectedWidth, expectedHeight, VipsInteresting.Attention);
+            assertEquals(expectedWidth, img.getWidth());
+            assertEquals(expectedHeight, img.getHeight());
+        }
+    }
+
+    @Test
+    public void TestShouldRenderThumbnailWithCrop() throws IOException, VipsException {
+        String filename = VipsTestUtils.getRessourcePath("in_vips.jpg");
+        int expectedWidth = 200;
+        int expectedHeight = 200;
+        try (VipsImage img = VipsImage.thumbnail(filename, expectedWidth, expectedHeight, VipsInteresting.Entropy)) {
+            assertEquals(expectedWidth, img.getWidth());
+            assertEquals(expectedHeight, img.getHeight());
+        }
+    }
+
     @Test
     public void TestShouldResize() throws IOException, VipsException {
         ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
@@ -416,6 +484,27 @@ public class VipsImageTest {
         }
     }
 
+    @Test
+    public void TestShouldSmartcrop() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            img.smartcrop(128, 64, VipsInteresting.Attention);
+            assertEquals(128, img.getWidth());
+            assertEquals(64, img.getHeight());
+        }
+    }
+
+    @Test
+    public void TestShouldNotSmartcropLargerThanImage() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("white.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            img.smartcrop(img.getWidth() + 1, img.getHeight() + 1, VipsInteresting.Entropy);
+            fail("Should throw VipsException");
+        } catch (VipsException e) {
+            // Expected
+        }
+    }
+
     @Test
     public void TestShouldPadCorrectly() throws IOException, VipsException {
         PixelPacket pixel = new PixelPacket(255.0, 255.0, 255.0, 255.0);
@@ -616,6 +705,59 @@ public class VipsImageTest {
         }
     }
 
+    @Test
+    public void TestShouldCompositeLayersInOnePass() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("logo_with_transparent_padding_50x50.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity());
+             VipsImage badge = new VipsImage(buffer, buffer.capacity());
+             VipsImage background = new VipsImage(img, WhitePixel)) {
+            int width = background.getWidth();
+            int height = background.getHeight();
+            background.composite(Arrays.asList(img, badge),
+                    Arrays.asList(VipsBlendMode.Over, VipsBlendMode.Multiply),
+                    new int[]{0, 10}, new int[]{0, 10}, false);
+            assertEquals(width, background.getWidth());
+            assertEquals(height, background.getHeight());
+            assertEquals(WhitePixel, background.getPointPixelPacket(new Point(0, 0)));
+        }
+    }
+
+    @Test
+    public void TestCompositeShouldBlendLayerPixels() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("logo_with_transparent_padding_50x50.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity());
+             VipsImage background = new VipsImage(img, new PixelPacket(255, 255, 255, 255));
+             VipsImage red = new VipsImage(img, new PixelPacket(255, 0, 0, 255));
+             VipsImage grey = new VipsImage(img, new PixelPacket(128, 128, 128, 255))) {
+            background.composite(Arrays.asList(red, grey),
+                    Arrays.asList(VipsBlendMode.Over, VipsBlendMode.Multiply),
+                    new int[]{10, 20}, new int[]{10, 20}, false);
+            assertArrayEquals(new double[]{255, 255, 255, 255}, background.getPoint(5, 5), 1.0);
+            assertArrayEquals(new double[]{255, 0, 0, 255}, background.getPoint(15, 15), 1.0);
+            assertArrayEquals(new double[]{128, 0, 0, 255}, background.getPoint(25, 25), 1.0);
+        }
+    }
+
+    @Test(expected = VipsException.class)
+    public void TestCompositeShouldThrowOnNullLayer() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("logo_with_transparent_padding_50x50.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity());
+             VipsImage background = new VipsImage(img, WhitePixel)) {
+            background.composite(Arrays.asList(img, null), Arrays.asList(VipsBlendMode.Over, VipsBlendMode.Over),
+                    new int[]{0, 0}, new int[]{0, 0}, false);
+        }
+    }
+
+    @Test(expected = VipsException.class)
+    public void TestCompositeShouldThrowOnMismatchedModes() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("logo_with_transparent_padding_50x50.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity());
+             VipsImage background = new VipsImage(img, WhitePixel)) {
+            background.composite(Arrays.asList(img), Arrays.asList(VipsBlendMode.Over, VipsBlendMode.Over),
+                    new int[]{0}, new int[]{0}, false);
+        }
+    }
+
     @Test
     public void TestGetPointShouldReturn256bitsValue() throws IOException, VipsException {
         ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("white_48_bits.png");
@@ -627,6 +769,46 @@ public class VipsImageTest {
         }
     }
 
+    @Test
+    public void TestShouldTransformCmykToSrgbWithIccProfile() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips_cmyk.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            img.iccTransform(IccProfile.SRGB, IccProfile.CMYK, VipsIntent.Perceptual);
+            assertEquals(3, img.getBands());
+            assertEquals(VipsInterpretation.Srgb, img.imageGetInterpretation());
+        }
+    }
+
+    @Test
+    public void TestShouldImportAndExportIccProfile() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            int width = img.getWidth();
+            img.iccImport(IccProfile.SRGB, VipsIntent.Relative);
+            assertEquals(VipsInterpretation.Lab, img.imageGetInterpretation());
+            img.iccExport(IccProfile.SRGB, VipsIntent.Relative);
+            assertEquals(3, img.getBands());
+            assertEquals(width, img.getWidth());
+        }
+    }
+
+    @Test
+    public void TestShouldDeduplicateCustomIccProfile() throws VipsException {
+        byte[] profile = {0x01, 0x02, 0x03};
+        IccProfile first = IccProfile.fromBytes(profile);
+        assertTrue(first == IccProfile.fromBytes(profile.clone()));
+        assertTrue(new File(first.getName()).isFile());
+    }
+
+    @Test
+    public void TestIccProfileDedupShouldBeBounded() throws VipsException {
+        byte[] profile = {0x04, 0x05, 0x06};
+        IccProfile first = IccProfile.fromBytes(profile);
+        for (int i = 0; i < IccProfile.DEDUP_SIZE; ++i)
+            IccProfile.fromBytes(new byte[]{0x07, (byte) i, (byte) (i >> 8)});
+        assertTrue(first != IccProfile.fromBytes(profile));
+    }
+
     @Test
     public void TestShouldGuessColourspace() throws IOException, VipsException {
         ByteBuffer bufferSrgb = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
@@ -699,6 +881,30 @@ public class VipsImageTest {
         }
     }
 
+    @Theory
+    public void TestWriteGIFFromByteArrayShouldNotThrows(@FromDataPoints("filenames") String filename,
+                                                         boolean strip)
+            throws IOException, VipsException {
+        byte[] buffer = VipsTestUtils.getByteArray(filename);
+        try (VipsImage img = new VipsImage(buffer, buffer.length)) {
+            byte[] out = img.writeGIFToArray(0.5, 4, 8, 0, strip);
+            assertNotNull(out);
+        }
+    }
+
+    @Test
+    public void TestWriteGIFShouldKeepEveryFrame() throws IOException, VipsException {
+        byte[] buffer = VipsTestUtils.getByteArray("cat.gif");
+        try (VipsImage img = VipsImage.loadAnimated(buffer, buffer.length)) {
+            img.thumbnailImage(64, 64, false);
+            byte[] out = img.writeGIFToArray(0, 1, 6, 8, true);
+            try (VipsImage reloaded = VipsImage.loadAnimated(out, out.length)) {
+                assertEquals(5, reloaded.getNbFrame());
+                assertEquals(img.getPageHeight(), reloaded.getPageHeight());
+            }
+        }
+    }
+
     @Ignore
     @Theory
     public void TestWriteAVIFFromByteArrayShouldNotThrows(@FromDataPoints("filenames") String filename,
@@ -780,6 +986,402 @@ public class VipsImageTest {
         }
     }
 
+    @Test
+    public void TestShouldFindDominantColorsWithoutChangingImage() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            int width = img.getWidth();
+            int height = img.getHeight();
+            WeightedPixelPacket[] colors = img.dominantColors(3);
+            assertEquals(3, colors.length);
+            // Expected dominant colour of in_vips.jpg, see FileColours
+            assertEquals(12, colors[0].getRed(), 32);
+            assertEquals(112, colors[0].getGreen(), 32);
+            assertEquals(187, colors[0].getBlue(), 32);
+            double weights = 0;
+            for (int i = 0; i < colors.length; ++i) {
+                if (i > 0)
+                    assertTrue(colors[i - 1].getWeight() >= colors[i].getWeight());
+                weights += colors[i].getWeight();
+            }
+            assertTrue(weights <= 1.0 + Delta);
+            assertEquals(width, img.getWidth());
+            assertEquals(height, img.getHeight());
+        }
+    }
+
+    @Test
+    public void TestShouldExtractSingleColourPalette() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("white.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            WeightedPixelPacket[] colors = img.palette(8);
+            assertEquals(1, colors.length);
+            assertEquals(WhitePixel, new PixelPacket(colors[0].getRed(), colors[0].getGreen(), colors[0].getBlue()));
+            assertEquals(1.0, colors[0].getWeight(), Delta);
+        }
+    }
+
+    @Test
+    public void TestWeightedPixelPacketEqualityShouldBeSymmetric() {
+        PixelPacket pixel = new PixelPacket(1, 2, 3);
+        WeightedPixelPacket weighted = new WeightedPixelPacket(1, 2, 3, 0.5);
+        assertFalse(pixel.equals(weighted));
+        assertFalse(weighted.equals(pixel));
+        assertEquals(weighted, new WeightedPixelPacket(1, 2, 3, 0.5));
+        assertEquals(weighted.hashCode(), new WeightedPixelPacket(1, 2, 3, 0.5).hashCode());
+        assertNotEquals(weighted, new WeightedPixelPacket(1, 2, 3, 0.25));
+    }
+
+    @Test(expected = VipsException.class)
+    public void TestPaletteShouldThrowOnNoColour() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("white.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            img.palette(0);
+        }
+    }
+
+    @Test
+    public void TestShouldComputeCloseHashesForResizedImage() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity());
+             VipsImage resized = new VipsImage(buffer, buffer.capacity());
+             VipsImage other = new VipsImage(VipsTestUtils.getByteArray("logo.webp"),
+                     VipsTestUtils.getByteArray("logo.webp").length)) {
+            int width = img.getWidth();
+            resized.thumbnailImage(width / 3, img.getHeight() / 3, false);
+            for (HashType type : HashType.values()) {
+                long hash = img.perceptualHash(type);
+                assertTrue(type + " of resized image", Long.bitCount(hash ^ resized.perceptualHash(type)) <= 8);
+                assertTrue(type + " of other image", Long.bitCount(hash ^ other.perceptualHash(type)) > 8);
+            }
+            assertEquals(width, img.getWidth());
+        }
+    }
+
+    @Test
+    public void TestShouldEncodeForMaxBytes() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            int maxBytes = img.writeToArray(VipsImageFormat.JPG, 50, true).length;
+            EncodeResult result = img.encodeForTarget(VipsImageFormat.JPG, new TargetSpec().setMaxBytes(maxBytes));
+            assertTrue(result.isTargetMet());
+            assertTrue(result.getData().length <= maxBytes);
+            assertTrue(result.getQuality() >= 45 && result.getQuality() <= 55);
+            assertTrue(result.getIterations() <= new TargetSpec().getMaxIterations());
+        }
+    }
+
+    @Test
+    public void TestDefaultTargetSpecShouldConvergeWithinTolerance() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            TargetSpec spec = new TargetSpec();
+            // Just below an odd quality, so bisection has to narrow the range down to the tolerance
+            int maxBytes = img.writeToArray(VipsImageFormat.JPG, 73, true).length - 1;
+            EncodeResult result = img.encodeForTarget(VipsImageFormat.JPG, spec.setMaxBytes(maxBytes));
+            assertTrue(result.isTargetMet());
+            assertTrue(result.getIterations() <= spec.getMaxIterations());
+            int above = result.getQuality() + spec.getTolerance();
+            assertTrue(img.writeToArray(VipsImageFormat.JPG, above, true).length > maxBytes);
+        }
+    }
+
+    @Test
+    public void TestShouldEncodeForMinSsim() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            EncodeResult result = img.encodeForTarget(VipsImageFormat.JPG, new TargetSpec().setMinSsim(0.95));
+            assertTrue(result.isTargetMet());
+            try (VipsImage encoded = new VipsImage(result.getData(), result.getData().length)) {
+                assertTrue(ImageMetrics.ssim(img, encoded) >= 0.95);
+            }
+        }
+    }
+
+    @Test
+    public void TestShouldReportUnreachableTarget() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            EncodeResult result = img.encodeForTarget(VipsImageFormat.JPG, new TargetSpec().setMaxBytes(1));
+            assertFalse(result.isTargetMet());
+            assertEquals(new TargetSpec().getMinQuality(), result.getQuality());
+            assertEquals(1, result.getIterations());
+        }
+    }
+
+    @Test
+    public void TestShouldDropOpaqueAlphaAndGreyChannels() throws IOException, VipsException {
+        try (VipsImage base = VipsImage.black(16, 16)) {
+            base.colourspace(VipsInterpretation.Srgb);
+            try (VipsImage img = new VipsImage(base, new PixelPacket(128, 128, 128, 255))) {
+                assertEquals(4, img.getBands());
+                assertTrue(img.optimizeBands());
+                assertEquals(1, img.getBands());
+                assertEquals(VipsInterpretation.BW, img.imageGetInterpretation());
+                assertFalse(img.optimizeBands());
+            }
+        }
+    }
+
+    @Test
+    public void TestShouldKeepUsedAlphaAndColourChannels() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("logo_with_transparent_padding_50x50.png");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            int bands = img.getBands();
+            assertFalse(img.optimizeBands());
+            assertEquals(bands, img.getBands());
+        }
+    }
+
+    @Test
+    public void TestShouldOptimizeBandsBeforeEncoding() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            byte[] out = img.writeToArray(VipsImageFormat.JPG, JPGQuality, true, true);
+            assertEquals(3, img.getBands());
+            assertTrue(out.length > 0);
+        }
+    }
+
+    @Test
+    public void TestShouldArrayJoinSpriteSheet() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("logo_with_transparent_padding_50x50.png");
+        try (VipsImage tile = new VipsImage(buffer, buffer.capacity())) {
+            List<Image> tiles = new ArrayList<>();
+            for (int i = 0; i < 10; ++i)
+                tiles.add(tile);
+            try (VipsImage sheet = VipsImage.arrayJoin(tiles, 4, 2, WhitePixel, VipsAlign.Centre, VipsAlign.Centre)) {
+                assertEquals(4 * 50 + 3 * 2, sheet.getWidth());
+                assertEquals(3 * 50 + 2 * 2, sheet.getHeight());
+            }
+        }
+    }
+
+    @Test
+    public void TestShouldArrayJoinJPEGTiles() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage tile = new VipsImage(buffer, buffer.capacity())) {
+            tile.thumbnailImage(40, 40, true);
+            List<Image> tiles = Arrays.asList(tile, tile, tile);
+            try (VipsImage sheet = VipsImage.arrayJoin(tiles, 3, 2, WhitePixel, VipsAlign.Low, VipsAlign.Low)) {
+                assertEquals(3, sheet.getBands());
+                assertEquals(3 * 40 + 2 * 2, sheet.getWidth());
+                assertArrayEquals(new double[]{255, 255, 255}, sheet.getPoint(41, 10), Delta);
+            }
+        }
+    }
+
+    @Test(expected = VipsException.class)
+    public void TestArrayJoinShouldThrowOnNullImage() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage tile = new VipsImage(buffer, buffer.capacity())) {
+            VipsImage.arrayJoin(Arrays.asList(tile, null), 2, 0, WhitePixel, VipsAlign.Low, VipsAlign.Low);
+        }
+    }
+
+    @Test
+    public void TestShouldExtractTiles() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        List<Rectangle> areas = Arrays.asList(new Rectangle(0, 0, 32, 16), new Rectangle(10, 20, 64, 64));
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            List<VipsImage> tiles = img.extractTiles(areas);
+            assertEquals(2, tiles.size());
+            for (int i = 0; i < tiles.size(); ++i) {
+                assertEquals(areas.get(i).width, tiles.get(i).getWidth());
+                assertEquals(areas.get(i).height, tiles.get(i).getHeight());
+                tiles.get(i).release();
+            }
+            List<byte[]> encoded = img.extractTiles(areas, VipsImageFormat.PNG, -1, true);
+            assertEquals(2, encoded.size());
+            try (VipsImage decoded = new VipsImage(encoded.get(1), encoded.get(1).length)) {
+                assertEquals(64, decoded.getWidth());
+            }
+        }
+    }
+
+    @Test
+    public void TestShouldWriteDeepZoomPyramid() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        Path dir = Files.createTempDirectory("dzsave");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            img.dzsave(dir.resolve("image").toString(), new TileSpec().setTileSize(128, 0));
+            assertTrue(Files.isRegularFile(dir.resolve("image.dzi")));
+            assertTrue(Files.isDirectory(dir.resolve("image_files").resolve("0")));
+        } finally {
+            TileWalker.delete(dir);
+        }
+    }
+
+    @Test(expected = VipsException.class)
+    public void TestTileCallbackShouldRejectIiifLayout() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            img.dzsave(new TileSpec().setLayout(VipsForeignDzLayout.Iiif), (level, x, y, data) -> fail());
+        }
+    }
+
+    @Test
+    public void TestShouldStreamGoogleTiles() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        Map<Integer, Integer> tilesPerLevel = new HashMap<>();
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            TileSpec spec = new TileSpec()
+                    .setLayout(VipsForeignDzLayout.Google)
+                    .setTileSize(256, 0)
+                    .setSuffix(".png");
+            img.dzsave(spec, (level, x, y, data) -> {
+                tilesPerLevel.merge(level, 1, Integer::sum);
+                assertTrue(data.length > 0);
+            });
+        }
+        assertEquals(1, (int) tilesPerLevel.get(0));
+        assertTrue(tilesPerLevel.size() > 1);
+    }
+
+    @Test
+    public void TestShouldWritePyramidalTiffAndLoadLevel() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        TiffSpec spec = new TiffSpec()
+                .setCompression(VipsForeignTiffCompression.Deflate, VipsForeignTiffPredictor.Horizontal)
+                .setPyramid(true);
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            byte[] tiff = img.writeTIFFToArray(spec);
+            try (VipsImage level = VipsImage.loadTIFF(tiff, tiff.length, 1, -1)) {
+                assertEquals(img.getWidth() / 2, level.getWidth());
+                assertEquals(img.getHeight() / 2, level.getHeight());
+            }
+        }
+    }
+
+    @Test
+    public void TestShouldWriteTiffFileWithSubifdPyramid() throws IOException, VipsException {
+        ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
+        File file = File.createTempFile("pyramid", ".tif");
+        file.deleteOnExit();
+        TiffSpec spec = new TiffSpec()
+                .setCompression(VipsForeignTiffCompression.Jpeg, VipsForeignTiffPredictor.None)
+                .setQuality(85)
+                .setTile(256, 256)
+                .setPyramid(true)
+                .setSubifd(true);
+        try (VipsImage img = new VipsImage(buffer, buffer.capacity())) {
+            img.writeTIFFToFile(file.getAbsolutePath(), spec);
+            try (VipsImage page = VipsImage.loadTIFF(file.getAbsolutePath(), 0, -1);
+                 VipsImage level = VipsImage.loadTIFF(file.getAbsolutePath(), 0, 0)) {
+                assertEquals(img.getWidth(), page.getWidth());
+                assertEquals(img.getWidth() / 2, level.getWidth());
+            }
+        }
+    }
+
+    @Test
+    public void TestShouldPreviewFitInBox() throws IOException, VipsException {
+        byte[] buffer = VipsTestUtils.getByteArray("in_vips.jpg");
+        try (VipsImage img = VipsImage.preview(buffer, buffer.length, 160)) {
+            assertEquals(160, Math.max(img.getWidth(), img.getHeight()));
+        }
+    }
+
+    @Test
+    public void TestShouldPreviewFromFileMatchThumbnailOrientation() throws IOException, VipsException {
+        String filename = VipsTestUtils.getRessourcePath("exif_rotate_90_cw.jpg");
+        try (VipsImage preview = VipsImage.preview(filename, 64);
+             VipsImage thumbnail = VipsImage.thumbnail(filename, 64, 64, false)) {
+            assertEquals(thumbnail.getWidth() > thumbnail.getHeight(), preview.getWidth() > preview.getHeight());
+            assertEquals(64, Math.max(preview.getWidth(), preview.getHeight()));
+        }
+    }
+
+    @Test(expected = VipsException.class)
+    public void TestPreviewShouldThrowOnInvalidBuffer() throws VipsException {
+        byte[] buffer = new byte[]{1, 2, 3, 4};
+        VipsImage.preview(buffer, buffer.length, 64);
+    }
+
+    @Test
+    public void TestShouldLoadEveryFrameStacked() throws IOException, VipsException {
+        byte[] buffer = VipsTestUtils.getByteArray("cat.gif");
+        try (VipsImage img = VipsImage.loadAnimated(buffer, buffer.length)) {
+            assertEquals(5, img.getNbFrame());
+            assertEquals(5 * img.getPageHeight(), img.getHeight());
+            assertEquals(5, img.getDelays().length);
+        }
+    }
+
+    @Test
+    public void TestShouldResizeCropAndPadEveryFrame() throws IOException, VipsException {
+        byte[] buffer = VipsTestUtils.getByteArray("cat.gif");
+        try (VipsImage img = VipsImage.loadAnimated(buffer, buffer.length)) {
+            img.thumbnailImage(64, 64, false);
+            assertTrue(img.getPageHeight() <= 64);
+            assertEquals(5 * img.getPageHeight(), img.getHeight());
+            img.crop(new Rectangle(0, 0, 32, 32));
+            assertEquals(32, img.getPageHeight());
+            assertEquals(5 * 32, img.getHeight());
+            img.pad(new Dimension(40, 40), new PixelPacket(0, 0, 0, 0), VipsCompassDirection.Centre);
+            assertEquals(40, img.getPageHeight());
+            assertEquals(5 * 40, img.getHeight());
+        }
+    }
+
+    @Test
+    public void TestPadShouldKeepSingleFrame() throws IOException, VipsException {
+        byte[] buffer = VipsTestUtils.getByteArray("cat.gif");
+        try (VipsImage img = VipsImage.loadPage(buffer, buffer.length, 0)) {
+            int height = img.getHeight();
+            img.pad(new Dimension(img.getWidth(), 2 * height), new PixelPacket(0, 0, 0, 0), VipsCompassDirection.North);
+            assertEquals(2 * height, img.getPageHeight());
+            img.crop(new Rectangle(0, 0, 10, 2 * height));
+            assertEquals(2 * height, img.getHeight());
+        }
+    }
+
+    @Test
+    public void TestShouldSaveAnimatedWebPWithDelaysAndLoop() throws IOException, VipsException {
+        byte[] buffer = VipsTestUtils.getByteArray("cat.gif");
+        int[] delays = new int[]{100, 200, 300, 400, 500};
+        try (VipsImage img = VipsImage.loadAnimated(buffer, buffer.length)) {
+            img.thumbnailImage(64, 64, false);
+            img.setAnimation(delays, 3);
+            byte[] out = img.writeToArray(VipsImageFormat.WEBP, false);
+            try (VipsImage reloaded = VipsImage.loadAnimated(out, out.length)) {
+                assertEquals(5, reloaded.getNbFrame());
+                assertEquals(img.getPageHeight(), reloaded.getPageHeight());
+                assertArrayEquals(delays, reloaded.getDelays());
+                assertEquals(3, reloaded.getLoop());
+            }
+        }
+    }
+
+    @Test
+    public void TestShouldLoadSinglePage() throws IOException, VipsException {
+        byte[] buffer = VipsTestUtils.getByteArray("cat.gif");
+        try (VipsImage img = VipsImage.loadPage(buffer, buffer.length, 3)) {
+            assertEquals(5, img.getNbFrame());
+            assertEquals(img.getPageHeight(), img.getHeight());
+        }
+    }
+
+    @Test
+    public void TestShouldIterateEveryStepFrames() throws IOException, VipsException {
+        String filename = VipsTestUtils.getRessourcePath("cat.gif");
+        Iterator<VipsImage> frames = VipsImage.frames(filename, 2);
+        int count = 0;
+        while (frames.hasNext()) {
+            try (VipsImage frame = frames.next()) {
+                assertEquals(frame.getPageHeight(), frame.getHeight());
+            }
+            count++;
+        }
+        assertEquals(3, count);
+    }
+
+    @Test(expected = VipsException.class)
+    public void TestFramesShouldThrowOnInvalidStep() throws IOException, VipsException {
+        byte[] buffer = VipsTestUtils.getByteArray("cat.gif");
+        VipsImage.frames(buffer, buffer.length, 0);
+    }
+
     @Test
     public void TestMax1() throws IOException, VipsException {
         ByteBuffer buffer = VipsTestUtils.getDirectByteBuffer("in_vips.jpg");
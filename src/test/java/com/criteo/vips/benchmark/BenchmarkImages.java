@@ -0,0 +1,49 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import com.criteo.vips.VipsImage;
+import com.criteo.vips.VipsTestUtils;
+import com.criteo.vips.enums.VipsImageFormat;
+import com.criteo.vips.enums.VipsKernel;
+
+import java.io.IOException;
+
+/**
+ * Synthetic benchmark inputs.
+ * Photographic content is obtained by rescaling in_vips.jpg to the requested pixel count,
+ * so encoders see realistic entropy at any size.
+ */
+public class BenchmarkImages {
+    private static final String SOURCE = "in_vips.jpg";
+
+    /**
+     * @param format     Output format
+     * @param megapixels Target pixel count in millions
+     * @return Encoded image of about megapixels million pixels
+     * @throws IOException if the source image can't be read
+     */
+    public static byte[] synthesize(VipsImageFormat format, double megapixels) throws IOException {
+        byte[] contents = VipsTestUtils.getByteArray(SOURCE);
+        try (VipsImage image = new VipsImage(contents, contents.length)) {
+            double pixels = (double) image.getWidth() * image.getHeight();
+            double scale = Math.sqrt(megapixels * 1000000 / pixels);
+            image.resize(scale, scale, VipsKernel.Lanczos3);
+            return image.writeToArray(format, false);
+        }
+    }
+}
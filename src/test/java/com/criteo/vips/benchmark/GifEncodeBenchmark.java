@@ -0,0 +1,103 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import com.criteo.vips.VipsContext;
+import com.criteo.vips.VipsImage;
+import com.criteo.vips.enums.VipsImageFormat;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GIF encode throughput, from a decoded image to a GIF buffer.
+ * <p>
+ * Before cgif, libvips was built without any GIF saver, so there is no previous GIF path to
+ * compare with: writeToArray(GIF) now goes through the same cgif saver. WriteGIFToArray sweeps
+ * the quantisation effort and dithering, and WritePalettePNGToArray, the palette encoder that
+ * was already available, gives a reference point.
+ * The default run covers 1 MP images. Run every size with -Djvips.benchmark.full=true.
+ */
+public class GifEncodeBenchmark {
+    @Test
+    public void TestBenchmark() throws Exception {
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .include(this.getClass().getName() + ".*")
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .warmupTime(TimeValue.seconds(1))
+                .warmupIterations(2)
+                .measurementTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .threads(Integer.getInteger("jvips.benchmark.threads", 1))
+                .forks(1)
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("jvips.benchmark.result", "target/gif-encode-benchmark.json"));
+
+        if (!Boolean.getBoolean("jvips.benchmark.full"))
+            builder.param("megapixels", "1");
+        new Runner(builder.build()).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class SourceState {
+        @Param({"0.1", "1", "4"})
+        double megapixels;
+
+        VipsImage image;
+
+        @Setup(Level.Trial)
+        public void initialize() throws IOException {
+            VipsContext.setMaxCache(0);
+            byte[] content = BenchmarkImages.synthesize(VipsImageFormat.PNG, megapixels);
+            image = new VipsImage(content, content.length);
+            image.copyMemory();
+        }
+
+        @TearDown(Level.Trial)
+        public void release() {
+            image.release();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class EncoderState {
+        @Param({"1", "4", "7"})
+        int effort;
+
+        @Param({"0", "1"})
+        double dither;
+    }
+
+    @Benchmark
+    public byte[] WritePalettePNGToArray(SourceState state) {
+        return state.image.writePNGToArray(6, true, 256, true);
+    }
+
+    @Benchmark
+    public byte[] WriteGIFToArray(SourceState state, EncoderState encoder) {
+        return state.image.writeGIFToArray(encoder.dither, encoder.effort, 8, 0, true);
+    }
+}
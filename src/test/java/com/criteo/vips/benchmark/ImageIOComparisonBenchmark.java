@@ -0,0 +1,188 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import com.criteo.vips.VipsContext;
+import com.criteo.vips.VipsImage;
+import com.criteo.vips.VipsTestUtils;
+import com.criteo.vips.enums.VipsImageFormat;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare JVips with pure Java decode, resize and encode of JPEG and PNG images.
+ * <p>
+ * Every implementation decodes the image, downsizes it to fit in 512x512 and encodes it in its source format
+ * at quality 80. Throughput and sampled latency are reported, with heap allocations (GC profiler)
+ * and process RSS.
+ * <p>
+ * The default run uses the in_vips test images and a 2 MP synthetic image.
+ * Use -Djvips.benchmark.full=true to add 0.3 and 12 MP synthetic images.
+ */
+public class ImageIOComparisonBenchmark {
+    private static final int TARGET_SIZE = 512;
+    private static final float QUALITY = 0.8f;
+
+    public enum Implementation {
+        JVIPS,
+        IMAGEIO_GRAPHICS2D,
+        IMAGEIO_AFFINE_TRANSFORM_OP
+    }
+
+    @Test
+    public void TestBenchmark() throws Exception {
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .include(this.getClass().getName() + ".*")
+                .mode(Mode.Throughput)
+                .mode(Mode.SampleTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupTime(TimeValue.seconds(1))
+                .warmupIterations(3)
+                .measurementTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .threads(1)
+                .forks(1)
+                .jvmArgsAppend("-Djava.awt.headless=true")
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
+                .addProfiler(RssProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("jvips.benchmark.result", "target/imageio-comparison-benchmark.json"));
+
+        if (!Boolean.getBoolean("jvips.benchmark.full"))
+            builder.param("source", "resource", "2");
+        new Runner(builder.build()).run();
+    }
+
+    @State(Scope.Thread)
+    public static class BenchmarkState {
+        @Param({"JPG", "PNG"})
+        VipsImageFormat format;
+
+        /**
+         * "resource" for the in_vips test image, or a synthetic image size in megapixels
+         */
+        @Param({"resource", "0.3", "2", "12"})
+        String source;
+
+        @Param({"JVIPS", "IMAGEIO_GRAPHICS2D", "IMAGEIO_AFFINE_TRANSFORM_OP"})
+        Implementation implementation;
+
+        byte[] content;
+
+        @Setup(Level.Trial)
+        public void initialize() throws IOException {
+            if ("resource".equals(source))
+                content = VipsTestUtils.getByteArray("in_vips" + format.getFileExtension());
+            else
+                content = BenchmarkImages.synthesize(format, Double.parseDouble(source));
+            VipsContext.setMaxCache(0);
+        }
+    }
+
+    @Benchmark
+    public byte[] DecodeResizeEncode(BenchmarkState state) throws IOException {
+        switch (state.implementation) {
+            case IMAGEIO_GRAPHICS2D:
+                return encode(resizeWithGraphics2D(decode(state.content)), state.format);
+            case IMAGEIO_AFFINE_TRANSFORM_OP:
+                return encode(resizeWithAffineTransformOp(decode(state.content)), state.format);
+            default:
+                try (VipsImage img = new VipsImage(state.content, state.content.length)) {
+                    img.thumbnailImage(TARGET_SIZE, TARGET_SIZE, false);
+                    return img.writeToArray(state.format, (int) (QUALITY * 100), false);
+                }
+        }
+    }
+
+    private static BufferedImage decode(byte[] content) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(content));
+    }
+
+    private static double scaleOf(BufferedImage image) {
+        return Math.min((double) TARGET_SIZE / image.getWidth(), (double) TARGET_SIZE / image.getHeight());
+    }
+
+    private static int imageTypeOf(BufferedImage image) {
+        return image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+    }
+
+    private static BufferedImage resizeWithGraphics2D(BufferedImage image) {
+        double scale = scaleOf(image);
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage out = new BufferedImage(width, height, imageTypeOf(image));
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private static BufferedImage resizeWithAffineTransformOp(BufferedImage image) {
+        double scale = scaleOf(image);
+        AffineTransformOp op = new AffineTransformOp(AffineTransform.getScaleInstance(scale, scale),
+                AffineTransformOp.TYPE_BICUBIC);
+        int width = Math.max(1, (int) Math.floor(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.floor(image.getHeight() * scale));
+        return op.filter(image, new BufferedImage(width, height, imageTypeOf(image)));
+    }
+
+    private static byte[] encode(BufferedImage image, VipsImageFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (format == VipsImageFormat.PNG) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(QUALITY);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,265 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import com.criteo.vips.PixelPacket;
+import com.criteo.vips.VipsContext;
+import com.criteo.vips.VipsImage;
+import com.criteo.vips.VipsTestUtils;
+import com.criteo.vips.enums.VipsCompassDirection;
+import com.criteo.vips.enums.VipsImageFormat;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compare the C SimpleBenchmark with the same pipeline run through JVips, and split the JNI wrapper overhead:
+ * <ul>
+ * <li>input copy: new VipsImage(byte[]) copies the buffer, a direct ByteBuffer doesn't</li>
+ * <li>output copy: writeToArray copies the encoded buffer into a new byte[], measured here by copying
+ * a direct ByteBuffer of the same size into a heap array</li>
+ * <li>call overhead: what remains of the difference with the C timing</li>
+ * </ul>
+ * Results are written to target/jni-overhead.properties. When -Djvips.benchmark.baseline points to a previous
+ * result file, overheads growing by more than jvips.benchmark.tolerance (default 0.2, ie. 20%) are flagged,
+ * and fail the test with -Djvips.benchmark.failOnRegression=true.
+ * <p>
+ * The C benchmark is looked up in build/linux/JVips/src/test/c/benchmark/SimpleBenchmark unless
+ * -Djvips.benchmark.native is set, and the test is skipped when it is missing. The corpus is a comma separated
+ * list of test resources (jvips.benchmark.corpus) and thread counts are set by jvips.benchmark.threads.
+ */
+public class JniOverheadBenchmark {
+    private static final String DEFAULT_NATIVE_BENCHMARK = "build/linux/JVips/src/test/c/benchmark/SimpleBenchmark";
+    private static final Pattern NATIVE_RESULT = Pattern.compile("\\(([0-9.]+) ms/op\\)");
+    private static final Dimension thumbnailTarget = new Dimension(512, 512);
+    private static final Rectangle cropTarget = new Rectangle(128, 128, 128, 128);
+    private static final Dimension padTarget = new Dimension(256, 256);
+    private static final PixelPacket pixelPacket = new PixelPacket(255.0, 255.0, 255.0);
+
+    @Test
+    public void TestBenchmark() throws Exception {
+        File nativeBenchmark = new File(System.getProperty("jvips.benchmark.native", DEFAULT_NATIVE_BENCHMARK));
+        Assume.assumeTrue("C benchmark not found: " + nativeBenchmark, nativeBenchmark.canExecute());
+
+        String[] corpus = System.getProperty("jvips.benchmark.corpus", "in_vips.jpg").split(",");
+        String[] threads = System.getProperty("jvips.benchmark.threads", "1,2").split(",");
+        int iterations = Integer.getInteger("jvips.benchmark.iterations", 200);
+        Properties results = new Properties();
+
+        System.out.println(String.format("%-24s %7s %9s %9s %9s %9s %9s %9s",
+                "image", "threads", "C", "JVips", "overhead", "in copy", "out copy", "call"));
+        for (String image : corpus) {
+            image = image.trim();
+            for (String threadCount : threads) {
+                int t = Integer.parseInt(threadCount.trim());
+                double c = runNative(nativeBenchmark, VipsTestUtils.getRessourcePath(image), iterations, t);
+                Map<String, Double> java = runJava(image, t);
+                double pipeline = java.get("PipelineByteArray");
+                double inputCopy = Math.max(0, java.get("NewFromByteArray") - java.get("NewFromDirectByteBuffer"));
+                double outputCopy = java.get("OutputCopy");
+                double overhead = pipeline - c;
+                double call = overhead - inputCopy - outputCopy;
+
+                System.out.println(String.format("%-24s %7d %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f",
+                        image, t, c, pipeline, overhead, inputCopy, outputCopy, call));
+                String prefix = image + "." + t + ".";
+                results.setProperty(prefix + "native", Double.toString(c));
+                results.setProperty(prefix + "jvips", Double.toString(pipeline));
+                results.setProperty(prefix + "overhead", Double.toString(overhead));
+                results.setProperty(prefix + "inputCopy", Double.toString(inputCopy));
+                results.setProperty(prefix + "outputCopy", Double.toString(outputCopy));
+                results.setProperty(prefix + "call", Double.toString(call));
+            }
+        }
+
+        File output = new File(System.getProperty("jvips.benchmark.result", "target/jni-overhead.properties"));
+        output.getAbsoluteFile().getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(output)) {
+            results.store(out, "JVips JNI overhead in ms/op");
+        }
+
+        String baseline = System.getProperty("jvips.benchmark.baseline");
+        if (baseline != null) {
+            List<String> regressions = compare(loadProperties(new File(baseline)), results,
+                    Double.parseDouble(System.getProperty("jvips.benchmark.tolerance", "0.2")));
+            for (String regression : regressions)
+                System.out.println("REGRESSION " + regression);
+            if (Boolean.getBoolean("jvips.benchmark.failOnRegression"))
+                Assert.assertTrue("JNI overhead regressions: " + regressions, regressions.isEmpty());
+        }
+    }
+
+    private static double runNative(File executable, String image, int iterations, int threads)
+            throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(executable.getAbsolutePath(), image,
+                Integer.toString(iterations), Integer.toString(threads))
+                .redirectErrorStream(true)
+                .start();
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                output.append(line).append('\n');
+        }
+        if (process.waitFor() != 0)
+            throw new IOException("C benchmark failed:\n" + output);
+        Matcher matcher = NATIVE_RESULT.matcher(output);
+        if (!matcher.find())
+            throw new IOException("Unexpected C benchmark output:\n" + output);
+        return Double.parseDouble(matcher.group(1));
+    }
+
+    private static Map<String, Double> runJava(String image, int threads) throws Exception {
+        Map<String, Double> scores = new HashMap<>();
+        Runner runner = new Runner(new OptionsBuilder()
+                .include(JniOverheadBenchmark.class.getName() + ".*")
+                .param("image", image)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupTime(TimeValue.seconds(1))
+                .warmupIterations(3)
+                .measurementTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .threads(threads)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .build());
+        for (RunResult result : runner.run()) {
+            String benchmark = result.getParams().getBenchmark();
+            scores.put(benchmark.substring(benchmark.lastIndexOf('.') + 1), result.getPrimaryResult().getScore());
+        }
+        return scores;
+    }
+
+    private static Properties loadProperties(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static List<String> compare(Properties baseline, Properties current, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : current.stringPropertyNames()) {
+            if (!key.endsWith(".overhead") && !key.endsWith(".inputCopy")
+                    && !key.endsWith(".outputCopy") && !key.endsWith(".call"))
+                continue;
+            String previous = baseline.getProperty(key);
+            if (previous == null)
+                continue;
+            double before = Double.parseDouble(previous);
+            double after = Double.parseDouble(current.getProperty(key));
+            // Ignore noise on sub-microsecond values
+            if (after > before * (1 + tolerance) && after - before > 0.001)
+                regressions.add(String.format("%s: %.3f -> %.3f ms/op", key, before, after));
+        }
+        return regressions;
+    }
+
+    @State(Scope.Thread)
+    public static class BenchmarkState {
+        @Param({"in_vips.jpg"})
+        String image;
+
+        byte[] content;
+        ByteBuffer buffer;
+        ByteBuffer encoded;
+        byte[] output;
+
+        @Setup(Level.Trial)
+        public void initialize() throws IOException {
+            VipsContext.setMaxCache(0);
+            content = VipsTestUtils.getByteArray(image);
+            buffer = ByteBuffer.allocateDirect(content.length);
+            buffer.put(content, 0, content.length);
+            byte[] out = pipeline(new VipsImage(content, content.length));
+            encoded = ByteBuffer.allocateDirect(out.length);
+            encoded.put(out, 0, out.length);
+            output = new byte[out.length];
+        }
+    }
+
+    private static byte[] pipeline(VipsImage img) {
+        try {
+            img.thumbnailImage(thumbnailTarget, false);
+            img.crop(cropTarget);
+            img.pad(padTarget, pixelPacket, VipsCompassDirection.Centre);
+            return img.writeToArray(VipsImageFormat.JPG, 80, false);
+        } finally {
+            img.release();
+        }
+    }
+
+    @Benchmark
+    public byte[] PipelineByteArray(BenchmarkState state) {
+        return pipeline(new VipsImage(state.content, state.content.length));
+    }
+
+    @Benchmark
+    public byte[] PipelineDirectByteBuffer(BenchmarkState state) {
+        return pipeline(new VipsImage(state.buffer, state.buffer.capacity()));
+    }
+
+    @Benchmark
+    public int NewFromByteArray(BenchmarkState state) {
+        try (VipsImage img = new VipsImage(state.content, state.content.length)) {
+            return img.getWidth();
+        }
+    }
+
+    @Benchmark
+    public int NewFromDirectByteBuffer(BenchmarkState state) {
+        try (VipsImage img = new VipsImage(state.buffer, state.buffer.capacity())) {
+            return img.getWidth();
+        }
+    }
+
+    @Benchmark
+    public byte[] OutputCopy(BenchmarkState state) {
+        // Native to heap copy of the encoded size, like SetByteArrayRegion in writeToArray
+        byte[] out = new byte[state.output.length];
+        state.encoded.clear();
+        state.encoded.get(out);
+        return out;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe latency histogram with HdrHistogram-like log-linear buckets.
+ * Values are kept with 7 significant bits, ie. less than 1% relative error, over the whole long range.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (64 - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * @param value Latency in any unit, negative values are recorded as 0
+     */
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(Math.max(0, value)));
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * @param percentile Percentile in [0, 100]
+     * @return Highest value equivalent to the one at percentile, 0 if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return highestEquivalentValue(i);
+        }
+        return highestEquivalentValue(BUCKET_COUNT - 1);
+    }
+
+    public long getMax() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; --i)
+            if (counts.get(i) > 0)
+                return highestEquivalentValue(i);
+        return 0;
+    }
+
+    public double getMean() {
+        long count = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            long c = counts.get(i);
+            count += c;
+            sum += (double) c * highestEquivalentValue(i);
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Add all values recorded by other into this histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+            counts.addAndGet(i, other.counts.get(i));
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        int mantissa = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT + mantissa - HALF_SUB_BUCKET_COUNT;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int exponent = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+        long mantissa = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        return (mantissa << shift) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import com.criteo.vips.VipsContext;
+import com.criteo.vips.VipsImage;
+import com.criteo.vips.enums.VipsImageFormat;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator replaying a mix of images through a thumbnail pipeline at fixed arrival rates.
+ * <p>
+ * Requests are scheduled at their intended start time whatever the state of the workers, and latency is
+ * measured from that intended time, so queueing delay is accounted for (no coordinated omission).
+ * The saturation point is the highest arrival rate keeping up with the offered load with a p99 under the SLO.
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>jvips.loadgen.mix: file listing recorded images, one "path[,weight]" per line.
+ * Without it, a synthetic mix "FORMAT:megapixels:weight,..." is read from jvips.loadgen.synthetic</li>
+ * <li>jvips.loadgen.workers: worker threads (default: available processors)</li>
+ * <li>jvips.loadgen.rates: comma separated arrival rates in requests/s (default: fractions of the measured capacity)</li>
+ * <li>jvips.loadgen.slo: p99 latency objective in ms (default: 10 times the unloaded p50)</li>
+ * <li>jvips.benchmark.duration: duration of each rate step in seconds (default: 5)</li>
+ * </ul>
+ */
+public class OpenLoopLoadBenchmark {
+    private static final String DEFAULT_SYNTHETIC_MIX = "JPG:0.3:6,JPG:2:3,PNG:1:1,WEBP:1:2";
+    private static final double[] CAPACITY_FRACTIONS = {0.25, 0.5, 0.7, 0.8, 0.9, 1.0, 1.1, 1.25};
+
+    static class Request {
+        final byte[] content;
+        final VipsImageFormat format;
+        final double weight;
+
+        Request(byte[] content, VipsImageFormat format, double weight) {
+            this.content = content;
+            this.format = format;
+            this.weight = weight;
+        }
+    }
+
+    static class Step {
+        final double offered;
+        final double achieved;
+        final LatencyHistogram histogram;
+
+        Step(double offered, double achieved, LatencyHistogram histogram) {
+            this.offered = offered;
+            this.achieved = achieved;
+            this.histogram = histogram;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%10.1f %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f",
+                    offered, achieved,
+                    histogram.getValueAtPercentile(50) / 1e6,
+                    histogram.getValueAtPercentile(90) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getValueAtPercentile(99.9) / 1e6,
+                    histogram.getMax() / 1e6);
+        }
+    }
+
+    @Test
+    public void TestBenchmark() throws Exception {
+        main(new String[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int workers = Integer.getInteger("jvips.loadgen.workers", Runtime.getRuntime().availableProcessors());
+        long durationMs = Long.getLong("jvips.benchmark.duration", 5) * 1000;
+        String mixFile = System.getProperty("jvips.loadgen.mix");
+        List<Request> mix = mixFile != null
+                ? loadRecordedMix(Paths.get(mixFile))
+                : synthesizeMix(System.getProperty("jvips.loadgen.synthetic", DEFAULT_SYNTHETIC_MIX));
+
+        VipsContext.setMaxCache(0);
+
+        // Unloaded service time: one request at a time
+        LatencyHistogram unloaded = new LatencyHistogram();
+        Random random = new Random(42);
+        long calibrationEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(1000, durationMs / 2));
+        while (System.nanoTime() < calibrationEnd) {
+            long t0 = System.nanoTime();
+            process(pick(mix, random));
+            unloaded.record(System.nanoTime() - t0);
+        }
+        double capacity = workers * 1e9 / unloaded.getMean();
+        long slo = Long.getLong("jvips.loadgen.slo", 0) > 0
+                ? TimeUnit.MILLISECONDS.toNanos(Long.getLong("jvips.loadgen.slo"))
+                : 10 * unloaded.getValueAtPercentile(50);
+
+        double[] rates = parseRates(System.getProperty("jvips.loadgen.rates"), capacity);
+        System.out.println(String.format("%d workers, unloaded p50 %.2f ms, estimated capacity %.1f req/s, p99 SLO %.2f ms",
+                workers, unloaded.getValueAtPercentile(50) / 1e6, capacity, slo / 1e6));
+        System.out.println(String.format("%10s %10s %10s %10s %10s %10s %10s",
+                "offered/s", "done/s", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p99.9 (ms)", "max (ms)"));
+
+        Step saturation = null;
+        for (double rate : rates) {
+            Step step = runStep(mix, workers, rate, durationMs);
+            System.out.println(step);
+            boolean sustained = step.achieved >= 0.95 * step.offered && step.histogram.getValueAtPercentile(99) <= slo;
+            if (sustained && (saturation == null || step.offered > saturation.offered))
+                saturation = step;
+        }
+        if (saturation == null) {
+            System.out.println("No tested rate meets the p99 SLO");
+        } else {
+            int cores = Runtime.getRuntime().availableProcessors();
+            System.out.println(String.format("Saturation point: %.1f req/s (%.1f req/s per core) with p99 %.2f ms",
+                    saturation.offered, saturation.offered / cores,
+                    saturation.histogram.getValueAtPercentile(99) / 1e6));
+        }
+    }
+
+    private static Step runStep(List<Request> mix, int workers, double rate, long durationMs) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(rate > 0 ? (long) rate : 0);
+        long intervalNs = (long) (1e9 / rate);
+        long count = (long) (rate * durationMs / 1000);
+        long begin = System.nanoTime();
+
+        for (long i = 0; i < count; ++i) {
+            final long intended = begin + i * intervalNs;
+            final Request request = pick(mix, random);
+            long wait = intended - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+            executor.execute(() -> {
+                process(request);
+                histogram.record(System.nanoTime() - intended);
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        return new Step(rate, histogram.getCount() / elapsed, histogram);
+    }
+
+    private static void process(Request request) {
+        try (VipsImage img = new VipsImage(request.content, request.content.length)) {
+            img.thumbnailImage(512, 512, false);
+            img.writeToArray(request.format, false);
+        }
+    }
+
+    private static Request pick(List<Request> mix, Random random) {
+        double total = 0;
+        for (Request request : mix)
+            total += request.weight;
+        double r = random.nextDouble() * total;
+        for (Request request : mix) {
+            r -= request.weight;
+            if (r < 0)
+                return request;
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    private static List<Request> synthesizeMix(String spec) throws IOException {
+        List<Request> mix = new ArrayList<>();
+        for (String item : spec.split(",")) {
+            String[] fields = item.trim().split(":");
+            VipsImageFormat format = VipsImageFormat.valueOf(fields[0]);
+            double megapixels = Double.parseDouble(fields[1]);
+            double weight = fields.length > 2 ? Double.parseDouble(fields[2]) : 1.0;
+            mix.add(new Request(BenchmarkImages.synthesize(format, megapixels), format, weight));
+        }
+        return mix;
+    }
+
+    private static List<Request> loadRecordedMix(Path file) throws IOException {
+        List<Request> mix = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] fields = line.split(",");
+            Path path = Paths.get(fields[0].trim());
+            double weight = fields.length > 1 ? Double.parseDouble(fields[1].trim()) : 1.0;
+            mix.add(new Request(Files.readAllBytes(path), formatOf(path), weight));
+        }
+        if (mix.isEmpty())
+            throw new IllegalArgumentException("Empty image mix: " + file);
+        return mix;
+    }
+
+    private static VipsImageFormat formatOf(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        for (VipsImageFormat format : VipsImageFormat.values()) {
+            if (format != VipsImageFormat.GIF && name.endsWith(format.getFileExtension()))
+                return format;
+        }
+        // Decoders sniff the content, only the output format depends on the extension
+        return VipsImageFormat.JPG;
+    }
+
+    private static double[] parseRates(String value, double capacity) {
+        if (value == null || value.isEmpty()) {
+            double[] rates = new double[CAPACITY_FRACTIONS.length];
+            for (int i = 0; i < rates.length; ++i)
+                rates[i] = capacity * CAPACITY_FRACTIONS[i];
+            return rates;
+        }
+        String[] items = value.split(",");
+        double[] rates = new double[items.length];
+        for (int i = 0; i < items.length; ++i)
+            rates[i] = Double.parseDouble(items[i].trim());
+        return rates;
+    }
+}
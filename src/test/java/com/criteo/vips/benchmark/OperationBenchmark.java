@@ -0,0 +1,213 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import com.criteo.vips.PixelPacket;
+import com.criteo.vips.VipsContext;
+import com.criteo.vips.VipsImage;
+import com.criteo.vips.VipsTestUtils;
+import com.criteo.vips.enums.VipsCompassDirection;
+import com.criteo.vips.enums.VipsImageFormat;
+import com.criteo.vips.enums.VipsInterpretation;
+import com.criteo.vips.enums.VipsKernel;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per operation benchmark, parameterized by source format, image size and input path.
+ * <p>
+ * Every operation but encode ends with max1(), which forces libvips to compute all pixels.
+ * Subtract the Decode score of the same parameters to get the cost of an operation alone.
+ * <p>
+ * The default run covers 1 MP JPEG byte[] inputs only. Run the whole matrix with
+ * -Djvips.benchmark.full=true, and write the JSON results elsewhere with -Djvips.benchmark.result=path.
+ */
+public class OperationBenchmark {
+    private static final Dimension thumbnailTarget = new Dimension(512, 512);
+    private static final PixelPacket background = new PixelPacket(255.0, 255.0, 255.0);
+
+    public enum Input {
+        BYTE_ARRAY,
+        DIRECT_BYTE_BUFFER,
+        FILE
+    }
+
+    @Test
+    public void TestBenchmark() throws Exception {
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .include(this.getClass().getName() + ".*")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupTime(TimeValue.seconds(1))
+                .warmupIterations(2)
+                .measurementTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .threads(1)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("jvips.benchmark.result", "target/operation-benchmark.json"));
+
+        if (!Boolean.getBoolean("jvips.benchmark.full")) {
+            builder.param("format", "JPG")
+                    .param("megapixels", "1")
+                    .param("input", "BYTE_ARRAY")
+                    .param("kernel", "Lanczos3");
+        }
+        new Runner(builder.build()).run();
+    }
+
+    @State(Scope.Thread)
+    public static class SourceState {
+        @Param({"JPG", "PNG", "WEBP", "AVIF"})
+        VipsImageFormat format;
+
+        @Param({"0.1", "1", "12", "50"})
+        double megapixels;
+
+        @Param({"BYTE_ARRAY", "DIRECT_BYTE_BUFFER", "FILE"})
+        Input input;
+
+        byte[] content;
+        ByteBuffer buffer;
+        File file;
+        VipsImage overlay;
+
+        @Setup(Level.Trial)
+        public void initialize() throws IOException {
+            VipsContext.setMaxCache(0);
+            content = BenchmarkImages.synthesize(format, megapixels);
+            buffer = ByteBuffer.allocateDirect(content.length);
+            buffer.put(content, 0, content.length);
+            file = File.createTempFile("operation-benchmark", format.getFileExtension());
+            file.deleteOnExit();
+            Files.write(file.toPath(), content);
+            byte[] overlayContent = VipsTestUtils.getByteArray("transparent.png");
+            overlay = new VipsImage(overlayContent, overlayContent.length);
+        }
+
+        @TearDown(Level.Trial)
+        public void release() {
+            overlay.release();
+            file.delete();
+        }
+
+        VipsImage open() {
+            switch (input) {
+                case DIRECT_BYTE_BUFFER:
+                    return new VipsImage(buffer, buffer.capacity());
+                case FILE:
+                    return new VipsImage(file.getAbsolutePath());
+                default:
+                    return new VipsImage(content, content.length);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class KernelState {
+        @Param({"Nearest", "Linear", "Cubic", "Mitchell", "Lanczos2", "Lanczos3"})
+        VipsKernel kernel;
+    }
+
+    @State(Scope.Thread)
+    public static class EncoderState {
+        @Param({"JPG", "PNG", "WEBP", "AVIF", "TIFF"})
+        VipsImageFormat target;
+    }
+
+    @Benchmark
+    public void Decode(SourceState state, Blackhole bh) {
+        try (VipsImage img = state.open()) {
+            bh.consume(img.max1());
+        }
+    }
+
+    @Benchmark
+    public void Thumbnail(SourceState state, Blackhole bh) {
+        try (VipsImage img = state.open()) {
+            img.thumbnailImage(thumbnailTarget, false);
+            bh.consume(img.max1());
+        }
+    }
+
+    @Benchmark
+    public void Resize(SourceState state, KernelState kernelState, Blackhole bh) {
+        try (VipsImage img = state.open()) {
+            img.resize(0.5, 0.5, kernelState.kernel);
+            bh.consume(img.max1());
+        }
+    }
+
+    @Benchmark
+    public void Crop(SourceState state, Blackhole bh) {
+        try (VipsImage img = state.open()) {
+            int width = img.getWidth();
+            int height = img.getHeight();
+            img.crop(new Rectangle(width / 4, height / 4, width / 2, height / 2));
+            bh.consume(img.max1());
+        }
+    }
+
+    @Benchmark
+    public void Pad(SourceState state, Blackhole bh) {
+        try (VipsImage img = state.open()) {
+            Dimension target = new Dimension(img.getWidth() * 11 / 10, img.getHeight() * 11 / 10);
+            img.pad(target, background, VipsCompassDirection.Centre);
+            bh.consume(img.max1());
+        }
+    }
+
+    @Benchmark
+    public void Composite(SourceState state, Blackhole bh) {
+        try (VipsImage img = state.open()) {
+            img.compose(state.overlay);
+            bh.consume(img.max1());
+        }
+    }
+
+    @Benchmark
+    public void Colourspace(SourceState state, Blackhole bh) {
+        try (VipsImage img = state.open()) {
+            img.colourspace(VipsInterpretation.Lab);
+            bh.consume(img.max1());
+        }
+    }
+
+    @Benchmark
+    public void Encode(SourceState state, EncoderState encoderState, Blackhole bh) {
+        try (VipsImage img = state.open()) {
+            bh.consume(img.writeToArray(encoderState.target, false));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import com.criteo.vips.VipsContext;
+import com.criteo.vips.VipsImage;
+import com.criteo.vips.HashType;
+import com.criteo.vips.enums.VipsImageFormat;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Perceptual hash throughput, from an encoded JPEG to a 64 bits hash.
+ * <p>
+ * Decode opens the same images and only reads their header: it is the floor of the hash cost.
+ * The default run covers 1 MP images. Run every size with -Djvips.benchmark.full=true.
+ */
+public class PerceptualHashBenchmark {
+    @Test
+    public void TestBenchmark() throws Exception {
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .include(this.getClass().getName() + ".*")
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .warmupTime(TimeValue.seconds(1))
+                .warmupIterations(2)
+                .measurementTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .threads(Integer.getInteger("jvips.benchmark.threads", 1))
+                .forks(1)
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("jvips.benchmark.result", "target/perceptual-hash-benchmark.json"));
+
+        if (!Boolean.getBoolean("jvips.benchmark.full"))
+            builder.param("megapixels", "1");
+        new Runner(builder.build()).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class SourceState {
+        @Param({"0.1", "1", "12"})
+        double megapixels;
+
+        byte[] content;
+
+        @Setup(Level.Trial)
+        public void initialize() throws IOException {
+            VipsContext.setMaxCache(0);
+            content = BenchmarkImages.synthesize(VipsImageFormat.JPG, megapixels);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class HashState {
+        @Param({"AHash", "DHash", "PHash"})
+        HashType type;
+    }
+
+    @Benchmark
+    public void Decode(SourceState state, Blackhole bh) {
+        try (VipsImage img = new VipsImage(state.content, state.content.length)) {
+            bh.consume(img.getWidth());
+        }
+    }
+
+    @Benchmark
+    public long Hash(SourceState state, HashState hashState) {
+        try (VipsImage img = new VipsImage(state.content, state.content.length)) {
+            return img.perceptualHash(hashState.type);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process memory measurements for benchmarks.
+ * The resident set size includes libvips native allocations, unlike JVM heap metrics.
+ */
+public class ProcessStats {
+    /**
+     * @return Current resident set size in bytes, -1 if unavailable (non Linux systems)
+     */
+    public static long rssBytes() {
+        try {
+            List<String> lines = Files.readAllLines(Paths.get("/proc/self/status"));
+            for (String line : lines) {
+                if (line.startsWith("VmRSS:")) {
+                    String[] fields = line.substring("VmRSS:".length()).trim().split("\\s+");
+                    return Long.parseLong(fields[0]) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not available on this system
+        }
+        return -1;
+    }
+
+    /**
+     * Sample the resident set size in background and keep its maximum
+     */
+    public static class PeakRssSampler implements AutoCloseable {
+        private final AtomicLong peak = new AtomicLong(-1);
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rss-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        public PeakRssSampler(long periodMs) {
+            executor.scheduleAtFixedRate(this::sample, 0, periodMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            long rss = rssBytes();
+            peak.accumulateAndGet(rss, Math::max);
+        }
+
+        /**
+         * @return Peak resident set size in bytes seen so far, -1 if unavailable
+         */
+        public long getPeak() {
+            sample();
+            return peak.get();
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.benchmark;
+
+import com.criteo.vips.PixelPacket;
+import com.criteo.vips.VipsContext;
+import com.criteo.vips.VipsImage;
+import com.criteo.vips.enums.VipsCompassDirection;
+import com.criteo.vips.enums.VipsImageFormat;
+import com.criteo.vips.enums.VipsKernel;
+import org.junit.Test;
+
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Sweep JVM worker threads x libvips concurrency x image size for representative pipelines.
+ * <p>
+ * Each configuration runs closed-loop for a fixed duration and reports throughput, p50/p99 latency
+ * and peak RSS, then the best configuration of each pipeline and size is printed. Every configuration
+ * runs in its own JVM: the resident set size of a process never shrinks back, so a peak measured after
+ * other configurations would only report the largest one seen so far.
+ * <p>
+ * The default sweep is short. Use -Djvips.benchmark.full=true for the whole matrix, or set the
+ * comma separated lists jvips.benchmark.threads, jvips.benchmark.concurrency and
+ * jvips.benchmark.megapixels, and jvips.benchmark.duration in seconds.
+ */
+public class ThreadScalingBenchmark {
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    private static final Dimension thumbnailTarget = new Dimension(512, 512);
+    private static final Rectangle cropTarget = new Rectangle(128, 128, 128, 128);
+    private static final Dimension padTarget = new Dimension(256, 256);
+    private static final PixelPacket background = new PixelPacket(255.0, 255.0, 255.0);
+    private static final Pattern RESULT = Pattern.compile("^RESULT (\\S+) (\\d+) (\\d+) (-?\\d+)$", Pattern.MULTILINE);
+
+    public enum Pipeline {
+        THUMBNAIL_CROP_PAD_JPEG {
+            @Override
+            byte[] run(byte[] content) {
+                try (VipsImage img = new VipsImage(content, content.length)) {
+                    img.thumbnailImage(thumbnailTarget, false);
+                    img.crop(cropTarget);
+                    img.pad(padTarget, background, VipsCompassDirection.Centre);
+                    return img.writeToArray(VipsImageFormat.JPG, 80, false);
+                }
+            }
+        },
+        RESIZE_WEBP {
+            @Override
+            byte[] run(byte[] content) {
+                try (VipsImage img = new VipsImage(content, content.length)) {
+                    img.resize(0.5, 0.5, VipsKernel.Lanczos3);
+                    return img.writeToArray(VipsImageFormat.WEBP, 80, false);
+                }
+            }
+        };
+
+        abstract byte[] run(byte[] content);
+    }
+
+    static class Result {
+        final Pipeline pipeline;
+        final double megapixels;
+        final int threads;
+        final int concurrency;
+        final double throughput;
+        final long p50;
+        final long p99;
+        final long rss;
+
+        Result(Pipeline pipeline, double megapixels, int threads, int concurrency,
+               double throughput, long p50, long p99, long rss) {
+            this.pipeline = pipeline;
+            this.megapixels = megapixels;
+            this.threads = threads;
+            this.concurrency = concurrency;
+            this.throughput = throughput;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.rss = rss;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-24s %8.1f %8d %12d %12.1f %10.2f %10.2f %10d",
+                    pipeline, megapixels, threads, concurrency, throughput,
+                    p50 / 1e6, p99 / 1e6, rss < 0 ? -1 : rss / (1024 * 1024));
+        }
+    }
+
+    @Test
+    public void TestBenchmark() throws Exception {
+        boolean full = Boolean.getBoolean("jvips.benchmark.full");
+        int[] threads = parseInts(System.getProperty("jvips.benchmark.threads"),
+                full ? new int[]{1, 2, 4, CORES, 2 * CORES} : new int[]{1, CORES});
+        int[] concurrencies = parseInts(System.getProperty("jvips.benchmark.concurrency"),
+                full ? new int[]{1, 2, 4, CORES} : new int[]{1, CORES});
+        double[] sizes = parseDoubles(System.getProperty("jvips.benchmark.megapixels"),
+                full ? new double[]{0.1, 1, 12} : new double[]{1});
+        long durationMs = Long.getLong("jvips.benchmark.duration", full ? 10 : 3) * 1000;
+        List<Result> results = new ArrayList<>();
+
+        System.out.println(String.format("%-24s %8s %8s %12s %12s %10s %10s %10s",
+                "pipeline", "MP", "threads", "concurrency", "ops/s", "p50 (ms)", "p99 (ms)", "RSS (MB)"));
+        for (Pipeline pipeline : Pipeline.values()) {
+            for (double megapixels : sizes) {
+                for (int threadCount : threads) {
+                    for (int concurrency : concurrencies) {
+                        Result result = fork(pipeline, megapixels, threadCount, concurrency, durationMs);
+                        System.out.println(result);
+                        results.add(result);
+                    }
+                }
+            }
+        }
+        printRecommendations(results);
+    }
+
+    /**
+     * Run one configuration in this JVM and print its result for {@link #fork}
+     *
+     * @param args pipeline, megapixels, threads, concurrency and duration in milliseconds
+     */
+    public static void main(String[] args) throws Exception {
+        Pipeline pipeline = Pipeline.valueOf(args[0]);
+        double megapixels = Double.parseDouble(args[1]);
+
+        VipsContext.setMaxCache(0);
+        byte[] content = BenchmarkImages.synthesize(VipsImageFormat.JPG, megapixels);
+        Result result = run(pipeline, content, megapixels, Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                Long.parseLong(args[4]));
+        System.out.println(String.format("RESULT %s %d %d %d",
+                Double.toString(result.throughput), result.p50, result.p99, result.rss));
+    }
+
+    private static Result fork(Pipeline pipeline, double megapixels, int threadCount, int concurrency,
+                               long durationMs) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                "-Djava.library.path=" + System.getProperty("java.library.path"),
+                ThreadScalingBenchmark.class.getName(),
+                pipeline.name(), Double.toString(megapixels), Integer.toString(threadCount),
+                Integer.toString(concurrency), Long.toString(durationMs))
+                .redirectErrorStream(true)
+                .start();
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                output.append(line).append('\n');
+        }
+        if (process.waitFor() != 0)
+            throw new IOException("Benchmark JVM failed:\n" + output);
+        Matcher matcher = RESULT.matcher(output);
+        if (!matcher.find())
+            throw new IOException("Unexpected benchmark JVM output:\n" + output);
+        return new Result(pipeline, megapixels, threadCount, concurrency, Double.parseDouble(matcher.group(1)),
+                Long.parseLong(matcher.group(2)), Long.parseLong(matcher.group(3)), Long.parseLong(matcher.group(4)));
+    }
+
+    private static Result run(Pipeline pipeline, byte[] content, double megapixels,
+                              int threadCount, int concurrency, long durationMs) throws Exception {
+        VipsContext.setConcurrency(concurrency);
+        // Warm up this configuration
+        runFor(pipeline, content, threadCount, Math.min(1000, durationMs / 3), new LatencyHistogram());
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        long elapsed;
+        long rss;
+        try (ProcessStats.PeakRssSampler sampler = new ProcessStats.PeakRssSampler(100)) {
+            elapsed = runFor(pipeline, content, threadCount, durationMs, histogram);
+            rss = sampler.getPeak();
+        }
+        double throughput = histogram.getCount() * 1e9 / elapsed;
+        return new Result(pipeline, megapixels, threadCount, concurrency, throughput,
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99), rss);
+    }
+
+    /**
+     * Run pipeline in a closed loop on threadCount threads
+     *
+     * @return elapsed time in nanoseconds
+     */
+    private static long runFor(Pipeline pipeline, byte[] content, int threadCount, long durationMs,
+                               LatencyHistogram histogram) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        long begin = System.nanoTime();
+        long deadline = begin + TimeUnit.MILLISECONDS.toNanos(durationMs);
+
+        try {
+            for (int i = 0; i < threadCount; ++i) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        long t0 = System.nanoTime();
+                        pipeline.run(content);
+                        histogram.record(System.nanoTime() - t0);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private static void printRecommendations(List<Result> results) {
+        System.out.println(String.format("Recommended configurations for this machine (%d cores):", CORES));
+        for (Pipeline pipeline : Pipeline.values()) {
+            results.stream()
+                    .filter(r -> r.pipeline == pipeline)
+                    .mapToDouble(r -> r.megapixels)
+                    .distinct()
+                    .forEach(megapixels -> {
+                        List<Result> candidates = results.stream()
+                                .filter(r -> r.pipeline == pipeline && r.megapixels == megapixels)
+                                .collect(Collectors.toList());
+                        double maxThroughput = candidates.stream().mapToDouble(r -> r.throughput).max().getAsDouble();
+                        // Prefer the lowest p99 among configurations within 5% of the best throughput
+                        Result best = candidates.stream()
+                                .filter(r -> r.throughput >= maxThroughput * 0.95)
+                                .min(Comparator.comparingLong(r -> r.p99))
+                                .get();
+                        System.out.println(String.format(
+                                "  %s at %.1f MP: %d JVM threads with VipsContext.setConcurrency(%d), %.1f ops/s, p99 %.2f ms",
+                                pipeline, megapixels, best.threads, best.concurrency, best.throughput, best.p99 / 1e6));
+                    });
+        }
+    }
+
+    private static int[] parseInts(String value, int[] defaults) {
+        if (value == null || value.isEmpty())
+            return IntStream.of(defaults).distinct().toArray();
+        String[] items = value.split(",");
+        int[] ret = new int[items.length];
+        for (int i = 0; i < items.length; ++i)
+            ret[i] = Integer.parseInt(items[i].trim());
+        return ret;
+    }
+
+    private static double[] parseDoubles(String value, double[] defaults) {
+        if (value == null || value.isEmpty())
+            return defaults;
+        String[] items = value.split(",");
+        double[] ret = new double[items.length];
+        for (int i = 0; i < items.length; ++i)
+            ret[i] = Double.parseDouble(items[i].trim());
+        return ret;
+    }
+}
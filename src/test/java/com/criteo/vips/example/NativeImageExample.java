@@ -0,0 +1,54 @@
+/*
+  Copyright (c) 2022 Criteo
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.criteo.vips.example;
+
+import com.criteo.vips.VipsException;
+import com.criteo.vips.VipsImage;
+import com.criteo.vips.enums.VipsImageFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Smoke test built as a GraalVM native executable by the "native" Maven profile.
+ * It decodes the given image, makes a thumbnail and encodes it, exiting with a non-zero status on failure.
+ */
+public class NativeImageExample {
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: NativeImageExample <image>");
+            System.exit(2);
+        }
+        try {
+            byte[] contents = Files.readAllBytes(Paths.get(args[0]));
+            try (VipsImage image = new VipsImage(contents, contents.length)) {
+                image.thumbnailImage(128, 128, false);
+                if (image.getWidth() > 128 || image.getHeight() > 128)
+                    throw new IllegalStateException("Unexpected thumbnail size " + image.getWidth() + "x" + image.getHeight());
+                byte[] out = image.writeToArray(VipsImageFormat.JPG, 80, true);
+                try (VipsImage decoded = new VipsImage(out, out.length)) {
+                    System.out.println(String.format("Native image smoke test passed: %dx%d, %d bytes",
+                            decoded.getWidth(), decoded.getHeight(), out.length));
+                }
+            }
+        } catch (IOException | VipsException | IllegalStateException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}